@@ -1,27 +1,46 @@
 package com.rgq.config;
 
-import org.kie.api.KieServices;
-import org.kie.api.builder.KieBuilder;
-import org.kie.api.builder.KieFileSystem;
-import org.kie.api.builder.KieModule;
-import org.kie.api.runtime.KieContainer;
+import org.kie.api.KieBase;
 import org.kie.internal.io.ResourceFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
+import java.io.InputStream;
+
 @Configuration
 public class DroolsConfig {
 
-    private static final String RULES_PATH = "rules/";
+    private static final Logger log = LoggerFactory.getLogger(DroolsConfig.class);
+
+    @Value("${app.rules.precompiled:true}")
+    private boolean precompiled;
 
+    /**
+     * KieBase compilada en el build (rules/fraud.kbase); si falta o no se puede leer se compila el DRL.
+     * Ambos caminos registran su tiempo para comparar el arranque.
+     */
     @Bean
-    public KieContainer kieContainer() {
-        KieServices kieServices = KieServices.Factory.get();
-        KieFileSystem kieFileSystem = kieServices.newKieFileSystem();
-        kieFileSystem.write(ResourceFactory.newClassPathResource(RULES_PATH + "rules.drl"));
-        KieBuilder kieBuilder = kieServices.newKieBuilder(kieFileSystem);
-        kieBuilder.buildAll();
-        KieModule kieModule = kieBuilder.getKieModule();
-        return kieServices.newKieContainer(kieModule.getReleaseId());
+    public KieBase fraudKieBase() {
+        ClassLoader classLoader = DroolsConfig.class.getClassLoader();
+        long start = System.currentTimeMillis();
+        if (precompiled) {
+            try (InputStream in = classLoader.getResourceAsStream(FraudRulesCompiler.PRECOMPILED_KBASE)) {
+                if (in != null) {
+                    KieBase kieBase = FraudRulesCompiler.load(in, classLoader);
+                    log.info("Fraud rules loaded from precompiled {} in {} ms", FraudRulesCompiler.PRECOMPILED_KBASE, System.currentTimeMillis() - start);
+                    return kieBase;
+                }
+                log.warn("Precompiled {} not found on classpath, compiling {}", FraudRulesCompiler.PRECOMPILED_KBASE, FraudRulesCompiler.RULES_DRL);
+            } catch (Exception e) {
+                log.warn("Could not load precompiled {}, compiling {}: {}", FraudRulesCompiler.PRECOMPILED_KBASE, FraudRulesCompiler.RULES_DRL, e.getMessage());
+            }
+            start = System.currentTimeMillis();
+        }
+        KieBase kieBase = FraudRulesCompiler.compile(ResourceFactory.newClassPathResource(FraudRulesCompiler.RULES_DRL, classLoader));
+        log.info("Fraud rules compiled from {} in {} ms", FraudRulesCompiler.RULES_DRL, System.currentTimeMillis() - start);
+        return kieBase;
     }
-}
\ No newline at end of file
+}
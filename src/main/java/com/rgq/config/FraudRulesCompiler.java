@@ -0,0 +1,69 @@
+package com.rgq.config;
+
+import org.drools.core.util.DroolsStreamUtils;
+import org.kie.api.KieBase;
+import org.kie.api.builder.Message;
+import org.kie.api.builder.Results;
+import org.kie.api.io.Resource;
+import org.kie.api.io.ResourceType;
+import org.kie.internal.io.ResourceFactory;
+import org.kie.internal.utils.KieHelper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.stream.Collectors;
+
+/**
+ * Compilación y serialización de la KieBase de reglas de fraude. En el build, exec-maven-plugin
+ * ejecuta main() en process-classes y deja la KieBase serializada en el classpath
+ * (rules/fraud.kbase); en runtime DroolsConfig la carga y solo compila el DRL como fallback.
+ */
+public final class FraudRulesCompiler {
+    private static final Logger log = LoggerFactory.getLogger(FraudRulesCompiler.class);
+
+    public static final String RULES_DRL = "rules/rules.drl";
+    public static final String PRECOMPILED_KBASE = "rules/fraud.kbase";
+
+    private FraudRulesCompiler() {
+    }
+
+    /** Compila los recursos DRL; lanza IllegalArgumentException si tienen errores. */
+    public static KieBase compile(Resource... drls) {
+        KieHelper helper = new KieHelper();
+        for (Resource drl : drls) {
+            helper.addResource(drl, ResourceType.DRL);
+        }
+        Results results = helper.verify();
+        if (results.hasMessages(Message.Level.ERROR)) {
+            throw new IllegalArgumentException("invalid rules: " + results.getMessages(Message.Level.ERROR).stream()
+                    .map(Message::getText).collect(Collectors.joining("; ")));
+        }
+        return helper.build();
+    }
+
+    public static KieBase load(InputStream in, ClassLoader classLoader) throws IOException, ClassNotFoundException {
+        return (KieBase) DroolsStreamUtils.streamIn(in, classLoader);
+    }
+
+    public static void write(KieBase kieBase, OutputStream out) throws IOException {
+        DroolsStreamUtils.streamOut(out, kieBase);
+    }
+
+    /** Uso: FraudRulesCompiler &lt;directorio de salida de clases&gt; */
+    public static void main(String[] args) throws IOException {
+        File target = new File(args.length > 0 ? args[0] : "target/classes", PRECOMPILED_KBASE);
+        long start = System.currentTimeMillis();
+        KieBase kieBase = compile(ResourceFactory.newClassPathResource(RULES_DRL, FraudRulesCompiler.class));
+        target.getParentFile().mkdirs();
+        try (OutputStream out = new BufferedOutputStream(new FileOutputStream(target))) {
+            write(kieBase, out);
+        }
+        log.info("Fraud rules compiled to {} in {} ms", target, System.currentTimeMillis() - start);
+    }
+}
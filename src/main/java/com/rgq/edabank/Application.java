@@ -11,7 +11,8 @@ import org.springframework.boot.autoconfigure.domain.EntityScan;
 
 import org.springframework.data.jpa.repository.config.EnableJpaRepositories;
 
-@SpringBootApplication
+// com.rgq incluye el motor de reglas Drools (com.rgq.config, com.rgq.streams), fuera de com.rgq.edabank
+@SpringBootApplication(scanBasePackages = "com.rgq")
 @EnableTransactionManagement
 @EnableKafkaStreams
 @EnableScheduling
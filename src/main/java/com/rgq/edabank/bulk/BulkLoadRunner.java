@@ -0,0 +1,71 @@
+package com.rgq.edabank.bulk;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedInputStream;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Ejecución por línea de comandos de la carga masiva, p. ej.:
+ * java -jar eda-backend.jar --app.bulk.run=true --app.bulk.payments-file=/data/payments.ndjson --app.bulk.publish=false
+ * Con app.bulk.exit=true (por defecto) la aplicación termina al acabar la carga.
+ */
+@Component
+@ConditionalOnProperty(name = "app.bulk.run", havingValue = "true")
+public class BulkLoadRunner implements ApplicationRunner {
+    private static final Logger log = LoggerFactory.getLogger(BulkLoadRunner.class);
+
+    private final BulkLoadService bulkLoadService;
+    private final ConfigurableApplicationContext context;
+
+    @Value("${app.bulk.payments-file:}")
+    private String paymentsFile;
+
+    @Value("${app.bulk.transfers-file:}")
+    private String transfersFile;
+
+    @Value("${app.bulk.publish:true}")
+    private boolean publish;
+
+    @Value("${app.bulk.exit:true}")
+    private boolean exit;
+
+    public BulkLoadRunner(BulkLoadService bulkLoadService, ConfigurableApplicationContext context) {
+        this.bulkLoadService = bulkLoadService;
+        this.context = context;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) throws Exception {
+        int code = 0;
+        try {
+            if (!paymentsFile.isBlank()) {
+                try (InputStream in = new BufferedInputStream(Files.newInputStream(Path.of(paymentsFile)))) {
+                    log.info("Bulk payments load finished: {}", bulkLoadService.loadPaymentsNdjson(in, publish));
+                }
+            }
+            if (!transfersFile.isBlank()) {
+                try (InputStream in = new BufferedInputStream(Files.newInputStream(Path.of(transfersFile)))) {
+                    log.info("Bulk transfers load finished: {}", bulkLoadService.loadTransfersNdjson(in, publish));
+                }
+            }
+        } catch (Exception e) {
+            log.error("Bulk load failed", e);
+            code = 1;
+        }
+        if (exit) {
+            int exitCode = code;
+            System.exit(SpringApplication.exit(context, () -> exitCode));
+        }
+    }
+}
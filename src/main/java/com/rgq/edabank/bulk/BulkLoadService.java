@@ -0,0 +1,220 @@
+package com.rgq.edabank.bulk;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.JsonDeserializer;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+import com.rgq.edabank.model.Payment;
+import com.rgq.edabank.model.Transfer;
+import org.postgresql.PGConnection;
+import org.postgresql.copy.CopyIn;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.sql.Statement;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Carga masiva de pagos y transferencias históricas con COPY (formato CSV) de pgjdbc.
+ * Cada bloque de commit-rows filas se copia a una tabla temporal y se fusiona en una sola
+ * sentencia con las tablas de negocio (ON CONFLICT DO NOTHING) y, si se publica, con pos.outbox.
+ * El campo payload del NDJSON puede venir como objeto JSON o como texto con el JSON.
+ */
+@Service
+public class BulkLoadService {
+    private static final Logger log = LoggerFactory.getLogger(BulkLoadService.class);
+
+    private static final String PAYMENT_COLUMNS = "id, type, amount, currency, account_id, payload, created_at";
+    private static final String TRANSFER_COLUMNS = "id, type, amount, from_account, to_account, payload, created_at";
+
+    private static final String INSERT_PAYMENTS =
+            "INSERT INTO pos.payments (" + PAYMENT_COLUMNS + ")"
+                    + " SELECT id, coalesce(type, 'payment'), amount, currency, account_id,"
+                    + "  coalesce(payload, jsonb_build_object('id', id, 'type', coalesce(type, 'payment'), 'amount', amount,"
+                    + "   'currency', currency, 'accountId', account_id)),"
+                    + "  coalesce(created_at, now())"
+                    + " FROM bulk_stage ON CONFLICT (id) DO NOTHING";
+
+    private static final String INSERT_TRANSFERS =
+            "INSERT INTO pos.transfers (" + TRANSFER_COLUMNS + ")"
+                    + " SELECT id, coalesce(type, 'transfer'), amount, from_account, to_account,"
+                    + "  coalesce(payload, jsonb_build_object('id', id, 'type', coalesce(type, 'transfer'), 'amount', amount,"
+                    + "   'from', from_account, 'to', to_account)),"
+                    + "  coalesce(created_at, now())"
+                    + " FROM bulk_stage ON CONFLICT (id) DO NOTHING";
+
+    // Con publish=false no se escribe en pos.outbox: el relay de replicación y Debezium publican
+    // todo INSERT de la tabla, así que una fila "ya enviada" acabaría igualmente en Kafka
+    private static final String MERGE_PAYMENTS =
+            "WITH ins AS (" + INSERT_PAYMENTS + " RETURNING id, payload)"
+                    + " INSERT INTO pos.outbox (aggregate_type, aggregate_id, type, payload)"
+                    + " SELECT 'payment', id, 'payments.events', payload FROM ins";
+
+    private static final String MERGE_TRANSFERS =
+            "WITH ins AS (" + INSERT_TRANSFERS + " RETURNING id, payload)"
+                    + " INSERT INTO pos.outbox (aggregate_type, aggregate_id, type, payload)"
+                    + " SELECT 'transfer', id, 'transfers.events', payload FROM ins";
+
+    private final JdbcTemplate jdbc;
+    private final TransactionTemplate tx;
+    private final ObjectMapper mapper;
+
+    /** Lee payload tal cual: un objeto JSON se guarda como su texto, una cadena se usa sin cambios. */
+    abstract static class RawPayloadMixin {
+        @JsonDeserialize(using = RawJsonDeserializer.class)
+        abstract void setPayload(String payload);
+    }
+
+    static final class RawJsonDeserializer extends JsonDeserializer<String> {
+        @Override
+        public String deserialize(JsonParser p, DeserializationContext ctxt) throws IOException {
+            if (p.currentToken() == JsonToken.VALUE_STRING) {
+                return p.getText();
+            }
+            JsonNode node = p.readValueAsTree();
+            return node == null ? null : node.toString();
+        }
+    }
+
+    @Value("${app.bulk.commit-rows:100000}")
+    private int commitRows;
+
+    @Value("${app.bulk.copy-buffer-bytes:262144}")
+    private int copyBufferBytes;
+
+    public BulkLoadService(JdbcTemplate jdbc, TransactionTemplate tx, ObjectMapper mapper) {
+        this.jdbc = jdbc;
+        this.tx = tx;
+        this.mapper = mapper.copy()
+                .addMixIn(Payment.class, RawPayloadMixin.class)
+                .addMixIn(Transfer.class, RawPayloadMixin.class);
+    }
+
+    /** NDJSON con los campos del modelo Payment (id, type, amount, currency, accountId, payload, createdAt). */
+    public Map<String, Object> loadPaymentsNdjson(InputStream in, boolean publish) throws IOException {
+        try (MappingIterator<Payment> it = mapper.readerFor(Payment.class).readValues(in)) {
+            return loadPayments(it, publish);
+        }
+    }
+
+    /** NDJSON con los campos del modelo Transfer (id, type, amount, fromAccount, toAccount, payload, createdAt). */
+    public Map<String, Object> loadTransfersNdjson(InputStream in, boolean publish) throws IOException {
+        try (MappingIterator<Transfer> it = mapper.readerFor(Transfer.class).readValues(in)) {
+            return loadTransfers(it, publish);
+        }
+    }
+
+    public Map<String, Object> loadPayments(Iterator<Payment> rows, boolean publish) {
+        return load("pos.payments", PAYMENT_COLUMNS, publish ? MERGE_PAYMENTS : INSERT_PAYMENTS, rows, publish, (p, csv) -> {
+            csvText(csv, p.getId()).append(',');
+            csvText(csv, p.getType()).append(',');
+            csv.append(p.getAmount()).append(',');
+            csvText(csv, p.getCurrency()).append(',');
+            csvText(csv, p.getAccountId()).append(',');
+            csvText(csv, p.getPayload()).append(',');
+            csvText(csv, p.getCreatedAt() == null ? null : p.getCreatedAt().toString()).append('\n');
+        });
+    }
+
+    public Map<String, Object> loadTransfers(Iterator<Transfer> rows, boolean publish) {
+        return load("pos.transfers", TRANSFER_COLUMNS, publish ? MERGE_TRANSFERS : INSERT_TRANSFERS, rows, publish, (t, csv) -> {
+            csvText(csv, t.getId()).append(',');
+            csvText(csv, t.getType()).append(',');
+            csv.append(t.getAmount()).append(',');
+            csvText(csv, t.getFromAccount()).append(',');
+            csvText(csv, t.getToAccount()).append(',');
+            csvText(csv, t.getPayload()).append(',');
+            csvText(csv, t.getCreatedAt() == null ? null : t.getCreatedAt().toString()).append('\n');
+        });
+    }
+
+    @FunctionalInterface
+    private interface CsvRowWriter<T> {
+        void write(T row, StringBuilder csv);
+    }
+
+    private <T> Map<String, Object> load(String table, String columns, String mergeSql, Iterator<T> rows,
+                                         boolean publish, CsvRowWriter<T> writer) {
+        long started = System.currentTimeMillis();
+        long read = 0;
+        long inserted = 0;
+        int chunks = 0;
+        while (rows.hasNext()) {
+            long[] chunk = tx.execute(status -> jdbc.execute((ConnectionCallback<long[]>) con -> {
+                try (Statement st = con.createStatement()) {
+                    st.execute("CREATE TEMP TABLE bulk_stage (LIKE " + table + ") ON COMMIT DROP");
+                }
+                CopyIn copy = con.unwrap(PGConnection.class).getCopyAPI()
+                        .copyIn("COPY bulk_stage (" + columns + ") FROM STDIN WITH (FORMAT csv)");
+                long n = 0;
+                StringBuilder csv = new StringBuilder(copyBufferBytes + 1024);
+                try {
+                    while (n < commitRows && rows.hasNext()) {
+                        writer.write(rows.next(), csv);
+                        n++;
+                        if (csv.length() >= copyBufferBytes) {
+                            byte[] bytes = csv.toString().getBytes(StandardCharsets.UTF_8);
+                            copy.writeToCopy(bytes, 0, bytes.length);
+                            csv.setLength(0);
+                        }
+                    }
+                    if (csv.length() > 0) {
+                        byte[] bytes = csv.toString().getBytes(StandardCharsets.UTF_8);
+                        copy.writeToCopy(bytes, 0, bytes.length);
+                    }
+                    copy.endCopy();
+                } finally {
+                    if (copy.isActive()) {
+                        copy.cancelCopy();
+                    }
+                }
+                try (Statement st = con.createStatement()) {
+                    return new long[]{n, st.executeUpdate(mergeSql)};
+                }
+            }));
+            read += chunk[0];
+            inserted += chunk[1];
+            chunks++;
+            log.info("Bulk load into {}: chunk {} committed ({} rows read, {} inserted so far)", table, chunks, read, inserted);
+        }
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("table", table);
+        result.put("read", read);
+        result.put("inserted", inserted);
+        result.put("duplicates", read - inserted);
+        result.put("chunks", chunks);
+        result.put("published", publish);
+        result.put("elapsedMs", System.currentTimeMillis() - started);
+        return result;
+    }
+
+    // CSV de COPY: vacío sin comillas = NULL; todo texto va entre comillas con "" escapadas
+    private static StringBuilder csvText(StringBuilder csv, String value) {
+        if (value == null) {
+            return csv;
+        }
+        csv.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"') {
+                csv.append('"');
+            }
+            csv.append(c);
+        }
+        return csv.append('"');
+    }
+}
@@ -26,6 +26,7 @@ public class SecurityConfig {
     .csrf(csrf -> csrf.disable())
     .authorizeHttpRequests(auth -> auth
       .requestMatchers("/actuator/health", "/api/health", "/auth/token", "/auth/login", "/auth/register", "/auth/captcha", "/v3/api-docs", "/swagger-ui/**", "/swagger-ui.html").permitAll()
+      .requestMatchers("/admin/**").hasAuthority("SCOPE_admin")
       .anyRequest().authenticated()
     )
     .oauth2ResourceServer(oauth -> oauth.jwt(Customizer.withDefaults()));
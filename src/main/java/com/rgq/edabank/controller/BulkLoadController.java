@@ -0,0 +1,52 @@
+package com.rgq.edabank.controller;
+
+import com.rgq.edabank.bulk.BulkLoadService;
+import jakarta.servlet.http.HttpServletRequest;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.Map;
+
+@RestController
+@RequestMapping("/admin/bulk")
+public class BulkLoadController {
+
+    private static final Logger log = LoggerFactory.getLogger(BulkLoadController.class);
+
+    private final BulkLoadService bulkLoadService;
+
+    public BulkLoadController(BulkLoadService bulkLoadService) {
+        this.bulkLoadService = bulkLoadService;
+    }
+
+    @PostMapping(value = "/payments", consumes = {"application/x-ndjson", "text/plain"})
+    public ResponseEntity<?> loadPayments(HttpServletRequest request,
+                                          @RequestParam(name = "publish", defaultValue = "true") boolean publish) {
+        try {
+            Map<String, Object> result = bulkLoadService.loadPaymentsNdjson(request.getInputStream(), publish);
+            log.info("Bulk payments load finished: {}", result);
+            return ResponseEntity.ok(result);
+        } catch (Exception e) {
+            log.error("Bulk payments load failed", e);
+            return ResponseEntity.status(500).body(Map.of("error", String.valueOf(e.getMessage())));
+        }
+    }
+
+    @PostMapping(value = "/transfers", consumes = {"application/x-ndjson", "text/plain"})
+    public ResponseEntity<?> loadTransfers(HttpServletRequest request,
+                                           @RequestParam(name = "publish", defaultValue = "true") boolean publish) {
+        try {
+            Map<String, Object> result = bulkLoadService.loadTransfersNdjson(request.getInputStream(), publish);
+            log.info("Bulk transfers load finished: {}", result);
+            return ResponseEntity.ok(result);
+        } catch (Exception e) {
+            log.error("Bulk transfers load failed", e);
+            return ResponseEntity.status(500).body(Map.of("error", String.valueOf(e.getMessage())));
+        }
+    }
+}
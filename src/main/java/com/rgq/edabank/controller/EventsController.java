@@ -1,16 +1,36 @@
 package com.rgq.edabank.controller;
 
+import com.rgq.edabank.dto.IngestResultDto;
 import com.rgq.edabank.repository.PaymentRepository;
 import com.rgq.edabank.repository.TransferRepository;
+import com.rgq.edabank.service.EventIngestService;
+import com.rgq.edabank.service.GroupCommitIngestor;
+import com.rgq.edabank.service.IdempotencyCache;
+import com.rgq.edabank.service.NdjsonIngestService;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 @RestController
 @RequestMapping("/events")
@@ -22,16 +42,42 @@ public class EventsController {
     private final PaymentRepository paymentRepo;
     private final TransferRepository transferRepo;
     private final com.rgq.edabank.repository.OutboxRepository outboxRepo;
+    private final EventIngestService ingestService;
+    private final NdjsonIngestService ndjsonIngestService;
+    private final IdempotencyCache idempotency;
 
-    public EventsController(KafkaTemplate<String, String> kafkaTemplate, PaymentRepository paymentRepo, TransferRepository transferRepo, com.rgq.edabank.repository.OutboxRepository outboxRepo) {
+    @Value("${app.ingest.max-batch-size:1000}")
+    private int maxBatchSize;
+
+    @Value("${app.ingest.async.wait-timeout-ms:5000}")
+    private long asyncWaitTimeoutMs;
+
+    // Solo presente con app.ingest.async.enabled=true
+    @Autowired(required = false)
+    private GroupCommitIngestor groupCommit;
+
+    public EventsController(KafkaTemplate<String, String> kafkaTemplate, PaymentRepository paymentRepo, TransferRepository transferRepo, com.rgq.edabank.repository.OutboxRepository outboxRepo, EventIngestService ingestService, NdjsonIngestService ndjsonIngestService, IdempotencyCache idempotency) {
         this.kafkaTemplate = kafkaTemplate;
         this.paymentRepo = paymentRepo;
         this.transferRepo = transferRepo;
         this.outboxRepo = outboxRepo;
+        this.ingestService = ingestService;
+        this.ndjsonIngestService = ndjsonIngestService;
+        this.idempotency = idempotency;
     }
 
     @PostMapping("/payments")
-    public ResponseEntity<?> publishPayment(@jakarta.validation.Valid @org.springframework.web.bind.annotation.RequestBody com.rgq.edabank.dto.PaymentDto dto) {
+    public ResponseEntity<?> publishPayment(@jakarta.validation.Valid @org.springframework.web.bind.annotation.RequestBody com.rgq.edabank.dto.PaymentDto dto,
+                                            @RequestParam(name = "wait", defaultValue = "false") boolean wait,
+                                            @RequestHeader(name = "Idempotency-Key", required = false) String idempotencyKey) {
+        // Reintentos del mismo evento (Idempotency-Key o, en su defecto, id del evento) reciben la respuesta original
+        return idempotency.execute("payments", idempotencyKey != null ? idempotencyKey : dto.getId(), () -> persistPayment(dto, wait));
+    }
+
+    private ResponseEntity<?> persistPayment(com.rgq.edabank.dto.PaymentDto dto, boolean wait) {
+        if (groupCommit != null) {
+            return accepted(groupCommit.submit(dto), wait);
+        }
         String key = UUID.randomUUID().toString();
         try {
             log.info("POST /events/payments received DTO: {}", dto);
@@ -56,7 +102,16 @@ public class EventsController {
     }
 
     @PostMapping("/transfers")
-    public ResponseEntity<?> publishTransfer(@jakarta.validation.Valid @org.springframework.web.bind.annotation.RequestBody com.rgq.edabank.dto.TransferDto dto) {
+    public ResponseEntity<?> publishTransfer(@jakarta.validation.Valid @org.springframework.web.bind.annotation.RequestBody com.rgq.edabank.dto.TransferDto dto,
+                                             @RequestParam(name = "wait", defaultValue = "false") boolean wait,
+                                             @RequestHeader(name = "Idempotency-Key", required = false) String idempotencyKey) {
+        return idempotency.execute("transfers", idempotencyKey != null ? idempotencyKey : dto.getId(), () -> persistTransfer(dto, wait));
+    }
+
+    private ResponseEntity<?> persistTransfer(com.rgq.edabank.dto.TransferDto dto, boolean wait) {
+        if (groupCommit != null) {
+            return accepted(groupCommit.submit(dto), wait);
+        }
         String key = UUID.randomUUID().toString();
         try {
             log.info("POST /events/transfers received DTO: {}", dto);
@@ -78,4 +133,92 @@ public class EventsController {
         }
         return ResponseEntity.ok().body("published: transfers.events key=" + key);
     }
-}
\ No newline at end of file
+
+    @PostMapping("/payments:batch")
+    public ResponseEntity<?> publishPaymentBatch(@org.springframework.web.bind.annotation.RequestBody List<com.rgq.edabank.dto.PaymentDto> dtos) {
+        if (dtos.size() > maxBatchSize) {
+            return ResponseEntity.status(HttpStatus.PAYLOAD_TOO_LARGE).body("batch too large: max " + maxBatchSize + " items");
+        }
+        try {
+            log.info("POST /events/payments:batch received {} items", dtos.size());
+            return ResponseEntity.ok(summary(ingestService.ingestPayments(dtos)));
+        } catch (Exception e) {
+            log.error("Failed to persist payment batch of {} items, error: ", dtos.size(), e);
+            return ResponseEntity.status(500).body("failed to persist batch: " + e.getMessage());
+        }
+    }
+
+    @PostMapping("/transfers:batch")
+    public ResponseEntity<?> publishTransferBatch(@org.springframework.web.bind.annotation.RequestBody List<com.rgq.edabank.dto.TransferDto> dtos) {
+        if (dtos.size() > maxBatchSize) {
+            return ResponseEntity.status(HttpStatus.PAYLOAD_TOO_LARGE).body("batch too large: max " + maxBatchSize + " items");
+        }
+        try {
+            log.info("POST /events/transfers:batch received {} items", dtos.size());
+            return ResponseEntity.ok(summary(ingestService.ingestTransfers(dtos)));
+        } catch (Exception e) {
+            log.error("Failed to persist transfer batch of {} items, error: ", dtos.size(), e);
+            return ResponseEntity.status(500).body("failed to persist batch: " + e.getMessage());
+        }
+    }
+
+    // NDJSON en streaming: una línea de progreso por bloque confirmado y un resumen final
+    @PostMapping(value = "/payments:stream", consumes = {"application/x-ndjson", "text/plain"})
+    public void streamPayments(HttpServletRequest request, HttpServletResponse response) throws IOException {
+        log.info("POST /events/payments:stream started");
+        response.setContentType("application/x-ndjson");
+        Map<String, Object> summary = ndjsonIngestService.ingestPayments(request.getInputStream(), response.getOutputStream());
+        log.info("POST /events/payments:stream finished: {}", summary);
+    }
+
+    @PostMapping(value = "/transfers:stream", consumes = {"application/x-ndjson", "text/plain"})
+    public void streamTransfers(HttpServletRequest request, HttpServletResponse response) throws IOException {
+        log.info("POST /events/transfers:stream started");
+        response.setContentType("application/x-ndjson");
+        Map<String, Object> summary = ndjsonIngestService.ingestTransfers(request.getInputStream(), response.getOutputStream());
+        log.info("POST /events/transfers:stream finished: {}", summary);
+    }
+
+    @GetMapping("/acks/{ackId}")
+    public ResponseEntity<?> ackStatus(@PathVariable String ackId) {
+        if (groupCommit == null) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(Map.of("error", "async ingestion is disabled"));
+        }
+        Map<String, Object> status = groupCommit.status(ackId);
+        return status == null
+                ? ResponseEntity.status(HttpStatus.NOT_FOUND).body(Map.of("error", "unknown or expired ackId"))
+                : ResponseEntity.ok(status);
+    }
+
+    // Modo asíncrono: 202 con ackId; con wait=true se espera la confirmación del group commit
+    private ResponseEntity<?> accepted(GroupCommitIngestor.Ack ack, boolean wait) {
+        if (ack == null) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).header("Retry-After", "1")
+                    .body(Map.of("error", "ingest queue full or stopping"));
+        }
+        if (wait) {
+            try {
+                ack.getFuture().get(asyncWaitTimeoutMs, TimeUnit.MILLISECONDS);
+                return ResponseEntity.ok(groupCommit.status(ack.getAckId()));
+            } catch (TimeoutException e) {
+                // sigue pendiente: se responde 202 y el cliente consulta /events/acks/{ackId}
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (Exception e) {
+                return ResponseEntity.status(500).body(groupCommit.status(ack.getAckId()));
+            }
+        }
+        return ResponseEntity.accepted().body(Map.of("ackId", ack.getAckId(), "status", GroupCommitIngestor.PENDING));
+    }
+
+    private static Map<String, Object> summary(List<IngestResultDto> results) {
+        long accepted = results.stream().filter(r -> IngestResultDto.ACCEPTED.equals(r.getStatus())).count();
+        long duplicates = results.stream().filter(r -> IngestResultDto.DUPLICATE.equals(r.getStatus())).count();
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("accepted", accepted);
+        body.put("duplicates", duplicates);
+        body.put("invalid", results.size() - accepted - duplicates);
+        body.put("results", results);
+        return body;
+    }
+}
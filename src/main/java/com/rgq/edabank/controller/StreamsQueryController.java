@@ -0,0 +1,112 @@
+package com.rgq.edabank.controller;
+
+import com.rgq.edabank.streams.StreamsQueryService;
+import com.rgq.edabank.streams.TopologyConfig;
+import com.rgq.edabank.streams.VelocityAggregation;
+import jakarta.servlet.http.HttpServletRequest;
+import org.apache.kafka.streams.errors.InvalidStateStoreException;
+import org.apache.kafka.streams.state.HostInfo;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.net.http.HttpResponse;
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Supplier;
+
+// Consultas interactivas sobre el estado de Kafka Streams (RocksDB local o la instancia que tiene la clave)
+@RestController
+@RequestMapping("/streams")
+public class StreamsQueryController {
+
+    private static final Logger log = LoggerFactory.getLogger(StreamsQueryController.class);
+
+    private final StreamsQueryService queries;
+
+    public StreamsQueryController(StreamsQueryService queries) {
+        this.queries = queries;
+    }
+
+    @GetMapping("/accounts/{accountId}/velocity")
+    public ResponseEntity<?> velocity(@PathVariable String accountId,
+                                      @RequestParam(name = "sinceMs", defaultValue = "3600000") long sinceMs,
+                                      @RequestParam(name = "local", defaultValue = "false") boolean local,
+                                      @RequestHeader(name = "Authorization", required = false) String authorization,
+                                      HttpServletRequest request) {
+        return query(VelocityAggregation.STORE, accountId, local, authorization, request, () -> {
+            Instant now = Instant.now();
+            Map<String, Object> body = new LinkedHashMap<>();
+            body.put("accountId", accountId);
+            body.put("windows", queries.velocity(accountId, now.minusMillis(sinceMs), now));
+            return ResponseEntity.ok(body);
+        });
+    }
+
+    @GetMapping("/accounts/{accountId}/alerts/latest")
+    public ResponseEntity<?> latestAlert(@PathVariable String accountId,
+                                         @RequestParam(name = "local", defaultValue = "false") boolean local,
+                                         @RequestHeader(name = "Authorization", required = false) String authorization,
+                                         HttpServletRequest request) {
+        return query(TopologyConfig.LATEST_ALERTS_STORE, accountId, local, authorization, request, () -> {
+            String alert = queries.latestAlert(accountId);
+            return alert == null
+                    ? ResponseEntity.status(HttpStatus.NOT_FOUND).body(Map.of("error", "no alerts for account"))
+                    : ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON).body(alert);
+        });
+    }
+
+    // Descripción de la topología y reparto de tareas por hilo de esta instancia, para escalar y perfilar
+    @GetMapping(value = "/topology", produces = MediaType.TEXT_PLAIN_VALUE)
+    public ResponseEntity<String> topology() {
+        try {
+            return ResponseEntity.ok(queries.topology());
+        } catch (InvalidStateStoreException e) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).header("Retry-After", "1").body(e.getMessage());
+        }
+    }
+
+    @GetMapping("/threads")
+    public ResponseEntity<?> threads() {
+        try {
+            return ResponseEntity.ok(queries.threads());
+        } catch (InvalidStateStoreException e) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).header("Retry-After", "1")
+                    .body(Map.of("error", e.getMessage()));
+        }
+    }
+
+    // local=true marca las peticiones ya reenviadas para no volver a enrutarlas
+    private ResponseEntity<?> query(String store, String accountId, boolean local, String authorization,
+                                    HttpServletRequest request, Supplier<ResponseEntity<?>> localQuery) {
+        try {
+            HostInfo owner = local ? null : queries.remoteOwnerOf(store, accountId);
+            if (owner == null) {
+                return localQuery.get();
+            }
+            String query = request.getQueryString();
+            String path = request.getRequestURI() + "?" + (query == null ? "" : query + "&") + "local=true";
+            HttpResponse<String> remote = queries.forward(owner, path, authorization);
+            return ResponseEntity.status(remote.statusCode()).contentType(MediaType.APPLICATION_JSON).body(remote.body());
+        } catch (InvalidStateStoreException e) {
+            // Arranque o rebalanceo: el cliente puede reintentar
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).header("Retry-After", "1")
+                    .body(Map.of("error", "state store not available: " + e.getMessage()));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(Map.of("error", "interrupted"));
+        } catch (Exception e) {
+            log.error("Interactive query on {} for {} failed", store, accountId, e);
+            return ResponseEntity.status(HttpStatus.BAD_GATEWAY).body(Map.of("error", "query failed: " + e.getMessage()));
+        }
+    }
+}
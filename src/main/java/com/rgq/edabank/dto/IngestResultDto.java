@@ -0,0 +1,33 @@
+package com.rgq.edabank.dto;
+
+import java.util.List;
+
+public class IngestResultDto {
+
+    public static final String ACCEPTED = "accepted";
+    public static final String DUPLICATE = "duplicate";
+    public static final String INVALID = "invalid";
+
+    private int index;
+    private String id;
+    private String status;
+    private List<String> errors;
+
+    public IngestResultDto() {}
+
+    public IngestResultDto(int index, String id, String status, List<String> errors) {
+        this.index = index;
+        this.id = id;
+        this.status = status;
+        this.errors = errors;
+    }
+
+    public int getIndex() { return index; }
+    public void setIndex(int index) { this.index = index; }
+    public String getId() { return id; }
+    public void setId(String id) { this.id = id; }
+    public String getStatus() { return status; }
+    public void setStatus(String status) { this.status = status; }
+    public List<String> getErrors() { return errors; }
+    public void setErrors(List<String> errors) { this.errors = errors; }
+}
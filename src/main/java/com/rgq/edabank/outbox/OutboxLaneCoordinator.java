@@ -0,0 +1,140 @@
+package com.rgq.edabank.outbox;
+
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Reparte los carriles del outbox entre las instancias activas.
+ * Cada aggregate_id pertenece a un único carril y cada carril a una única instancia, así que
+ * mientras un carril no cambia de dueño los eventos de un agregado se publican en orden. Si una
+ * instancia muere su lease vence y otra toma sus carriles. En ese relevo el orden no está
+ * garantizado: el nuevo dueño puede publicar filas que el anterior aún tenía en vuelo y que este
+ * confirme después, o volver a publicar las que el anterior envió sin llegar a marcar.
+ */
+@Component
+@ConditionalOnProperty(name = "app.outbox.relay", havingValue = "polling", matchIfMissing = true)
+public class OutboxLaneCoordinator {
+    private static final Logger LOG = LoggerFactory.getLogger(OutboxLaneCoordinator.class);
+
+    private final JdbcTemplate jdbc;
+    private final String instanceId;
+
+    @Value("${app.outbox.lanes.count:64}")
+    private int laneCount;
+
+    @Value("${app.outbox.lanes.lease-ms:60000}")
+    private long leaseMs;
+
+    private volatile boolean seeded = false;
+
+    public OutboxLaneCoordinator(JdbcTemplate jdbc, @Value("${app.outbox.instance-id:}") String instanceId) {
+        this.jdbc = jdbc;
+        this.instanceId = instanceId == null || instanceId.isBlank()
+                ? resolveHostname() + "-" + UUID.randomUUID().toString().substring(0, 8)
+                : instanceId;
+    }
+
+    public String getInstanceId() { return instanceId; }
+    public int getLaneCount() { return laneCount; }
+    public long getLeaseMs() { return leaseMs; }
+
+    /**
+     * Prolonga el lease de los carriles indicados si siguen siendo de esta instancia, junto con el
+     * heartbeat de la instancia. Devuelve los que se renovaron; si falta alguno, otra instancia puede
+     * haberlo tomado.
+     */
+    public List<Integer> renewLanes(List<Integer> lanes) {
+        // Sin heartbeat, una ejecución larga dejaría de contar como viva y las demás repartirían sus carriles
+        heartbeat();
+        return jdbc.queryForList(
+                "UPDATE pos.outbox_lanes SET lease_until = now() + (? * interval '1 millisecond') "
+                        + "WHERE owner = ? AND lane = ANY (?) RETURNING lane",
+                Integer.class, leaseMs, instanceId, lanes.toArray(new Integer[0]));
+    }
+
+    /**
+     * Renueva los leases propios, libera los carriles sobrantes y reclama carriles libres o vencidos
+     * hasta la cuota equitativa. Devuelve los carriles que esta instancia puede publicar.
+     */
+    public List<Integer> claimLanes() {
+        seedLanes();
+        heartbeat();
+        jdbc.update("DELETE FROM pos.outbox_publishers WHERE heartbeat_at < now() - (? * interval '1 millisecond')",
+                leaseMs * 10);
+
+        List<Integer> owned = new ArrayList<>(jdbc.queryForList(
+                "UPDATE pos.outbox_lanes SET lease_until = now() + (? * interval '1 millisecond') "
+                        + "WHERE owner = ? AND lane < ? RETURNING lane",
+                Integer.class, leaseMs, instanceId, laneCount));
+
+        Integer live = jdbc.queryForObject(
+                "SELECT count(*) FROM pos.outbox_publishers WHERE heartbeat_at > now() - (? * interval '1 millisecond')",
+                Integer.class, leaseMs);
+        int instances = Math.max(1, live == null ? 1 : live);
+        int target = (laneCount + instances - 1) / instances;
+
+        if (owned.size() > target) {
+            owned.sort(null);
+            List<Integer> extra = new ArrayList<>(owned.subList(target, owned.size()));
+            for (Integer lane : extra) {
+                jdbc.update("UPDATE pos.outbox_lanes SET owner = NULL, lease_until = NULL WHERE lane = ? AND owner = ?",
+                        lane, instanceId);
+            }
+            owned.removeAll(extra);
+            LOG.info("Outbox lanes released for rebalance: instance={} released={}", instanceId, extra);
+        } else if (owned.size() < target) {
+            List<Integer> claimed = jdbc.queryForList(
+                    "UPDATE pos.outbox_lanes SET owner = ?, lease_until = now() + (? * interval '1 millisecond') "
+                            + "WHERE lane IN (SELECT lane FROM pos.outbox_lanes "
+                            + "WHERE lane < ? AND (owner IS NULL OR lease_until IS NULL OR lease_until < now()) "
+                            + "ORDER BY lane LIMIT ? FOR UPDATE SKIP LOCKED) RETURNING lane",
+                    Integer.class, instanceId, leaseMs, laneCount, target - owned.size());
+            if (!claimed.isEmpty()) {
+                LOG.info("Outbox lanes claimed: instance={} claimed={}", instanceId, claimed);
+                owned.addAll(claimed);
+            }
+        }
+        return owned;
+    }
+
+    @PreDestroy
+    public void releaseAll() {
+        try {
+            jdbc.update("UPDATE pos.outbox_lanes SET owner = NULL, lease_until = NULL WHERE owner = ?", instanceId);
+            jdbc.update("DELETE FROM pos.outbox_publishers WHERE instance_id = ?", instanceId);
+        } catch (Exception e) {
+            LOG.warn("Could not release outbox lanes for {}: {}", instanceId, e.getMessage());
+        }
+    }
+
+    private void heartbeat() {
+        jdbc.update("INSERT INTO pos.outbox_publishers (instance_id, heartbeat_at) VALUES (?, now()) "
+                + "ON CONFLICT (instance_id) DO UPDATE SET heartbeat_at = now()", instanceId);
+    }
+
+    private void seedLanes() {
+        if (seeded) return;
+        jdbc.update("INSERT INTO pos.outbox_lanes (lane) SELECT generate_series(0, ? - 1) ON CONFLICT (lane) DO NOTHING",
+                laneCount);
+        seeded = true;
+    }
+
+    private static String resolveHostname() {
+        String host = System.getenv("HOSTNAME");
+        if (host != null && !host.isBlank()) return host;
+        try {
+            return java.net.InetAddress.getLocalHost().getHostName();
+        } catch (Exception e) {
+            return "outbox";
+        }
+    }
+}
@@ -0,0 +1,113 @@
+package com.rgq.edabank.outbox;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Métricas del outbox expuestas vía /actuator/prometheus: backlog pendiente y antigüedad del
+ * evento más viejo sin enviar (refrescados periódicamente, no en cada scrape), publicaciones y
+ * fallos por topic, latencia de envío y tamaño de lote.
+ */
+@Component
+public class OutboxMetrics {
+    private static final Logger LOG = LoggerFactory.getLogger(OutboxMetrics.class);
+
+    private final MeterRegistry registry;
+    private final JdbcTemplate jdbc;
+
+    private final AtomicLong backlogSize = new AtomicLong();
+    private final AtomicLong oldestUnsentAgeMs = new AtomicLong();
+    private final DistributionSummary batchSize;
+    private final Timer markSentLatency;
+    private final Map<String, Counter> published = new ConcurrentHashMap<>();
+    private final Map<String, Timer> sendLatency = new ConcurrentHashMap<>();
+    private final Map<String, Counter> failures = new ConcurrentHashMap<>();
+
+    public OutboxMetrics(MeterRegistry registry, JdbcTemplate jdbc) {
+        this.registry = registry;
+        this.jdbc = jdbc;
+        Gauge.builder("outbox.backlog.size", backlogSize, AtomicLong::get)
+                .description("Unsent rows in pos.outbox")
+                .register(registry);
+        Gauge.builder("outbox.backlog.oldest.age", oldestUnsentAgeMs, v -> v.get() / 1000.0)
+                .description("Age of the oldest unsent row in pos.outbox")
+                .baseUnit("seconds")
+                .register(registry);
+        this.batchSize = DistributionSummary.builder("outbox.batch.size")
+                .description("Events per outbox publish batch")
+                .publishPercentileHistogram()
+                .register(registry);
+        this.markSentLatency = Timer.builder("outbox.mark.sent.latency")
+                .description("Time to mark a batch of outbox rows as sent")
+                .publishPercentileHistogram()
+                .register(registry);
+    }
+
+    @Scheduled(fixedDelayString = "${app.outbox.metrics.refresh-ms:15000}")
+    public void refreshBacklog() {
+        try {
+            jdbc.query("SELECT count(*) AS pending, "
+                    + "coalesce(extract(epoch FROM now() - min(created_at)) * 1000, 0) AS oldest_ms "
+                    + "FROM pos.outbox WHERE sent = false", rs -> {
+                backlogSize.set(rs.getLong("pending"));
+                oldestUnsentAgeMs.set(rs.getLong("oldest_ms"));
+            });
+        } catch (Exception e) {
+            LOG.warn("Could not refresh outbox backlog metrics: {}", e.getMessage());
+        }
+    }
+
+    public void recordBatch(int size) {
+        batchSize.record(size);
+    }
+
+    public void recordSent(String topic, long startNanos) {
+        published.computeIfAbsent(topicTag(topic), t -> Counter.builder("outbox.published")
+                .description("Outbox events acknowledged by Kafka")
+                .tag("topic", t)
+                .register(registry)).increment();
+        sendLatency.computeIfAbsent(topicTag(topic), t -> Timer.builder("outbox.send.latency")
+                .description("Kafka send latency for outbox events")
+                .tag("topic", t)
+                .publishPercentileHistogram()
+                .register(registry)).record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void recordFailure(String topic, Throwable error) {
+        String reason = error == null ? "unknown" : rootCause(error).getClass().getSimpleName();
+        failures.computeIfAbsent(topicTag(topic) + '|' + reason, k -> Counter.builder("outbox.publish.failures")
+                .description("Outbox events that failed to publish")
+                .tag("topic", topicTag(topic))
+                .tag("reason", reason)
+                .register(registry)).increment();
+    }
+
+    public void recordMarkSent(long startNanos) {
+        markSentLatency.record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+    }
+
+    private static String topicTag(String topic) {
+        return topic == null ? "none" : topic;
+    }
+
+    private static Throwable rootCause(Throwable t) {
+        Throwable cur = t;
+        while (cur.getCause() != null && cur.getCause() != cur) {
+            cur = cur.getCause();
+        }
+        return cur;
+    }
+}
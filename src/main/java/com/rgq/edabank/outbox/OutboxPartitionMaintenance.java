@@ -0,0 +1,153 @@
+package com.rgq.edabank.outbox;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Rotación de particiones diarias de pos.outbox: crea por adelantado las particiones de los
+ * próximos días y separa (y opcionalmente elimina) las particiones antiguas cuyas filas ya
+ * fueron enviadas, de modo que el sondeo del outbox no crece con el histórico.
+ * Solo una instancia ejecuta la rotación a la vez (advisory lock transaccional en cada paso).
+ */
+@Component
+@ConditionalOnProperty(name = "app.outbox.partitions.enabled", havingValue = "true", matchIfMissing = true)
+public class OutboxPartitionMaintenance {
+    private static final Logger LOG = LoggerFactory.getLogger(OutboxPartitionMaintenance.class);
+    private static final DateTimeFormatter SUFFIX = DateTimeFormatter.ofPattern("yyyyMMdd");
+    private static final Pattern DAILY = Pattern.compile("^outbox_p(\\d{8})$");
+    private static final String HISTORY = "outbox_p_history";
+    private static final String DEFAULT_PARTITION = "outbox_default";
+
+    private final JdbcTemplate jdbc;
+    private final TransactionTemplate tx;
+
+    @Value("${app.outbox.partitions.premake-days:3}")
+    private int premakeDays;
+
+    @Value("${app.outbox.partitions.retention-days:2}")
+    private int retentionDays;
+
+    // true: DETACH + DROP; false: solo DETACH (la tabla queda disponible para archivado)
+    @Value("${app.outbox.partitions.drop-detached:true}")
+    private boolean dropDetached;
+
+    public OutboxPartitionMaintenance(JdbcTemplate jdbc, TransactionTemplate tx) {
+        this.jdbc = jdbc;
+        this.tx = tx;
+    }
+
+    @Scheduled(initialDelayString = "${app.outbox.partitions.initial-delay-ms:60000}",
+            fixedDelayString = "${app.outbox.partitions.interval-ms:3600000}")
+    public void rotate() {
+        // Cada partición en su propia transacción: un fallo en una no bloquea la creación ni el retiro de las demás
+        LocalDate today = LocalDate.now(ZoneOffset.UTC);
+        for (int i = 0; i <= premakeDays; i++) {
+            LocalDate day = today.plusDays(i);
+            try {
+                tx.executeWithoutResult(status -> {
+                    if (locked()) {
+                        createPartition(day);
+                    }
+                });
+            } catch (Exception e) {
+                LOG.error("Could not create outbox partition for {}", day, e);
+            }
+        }
+        List<String> partitions;
+        try {
+            partitions = jdbc.queryForList(
+                    "SELECT c.relname FROM pg_inherits i JOIN pg_class c ON c.oid = i.inhrelid "
+                            + "WHERE i.inhparent = 'pos.outbox'::regclass ORDER BY c.relname", String.class);
+        } catch (Exception e) {
+            LOG.error("Could not list outbox partitions", e);
+            return;
+        }
+        LocalDate cutoff = today.minusDays(retentionDays);
+        for (String name : partitions) {
+            try {
+                tx.executeWithoutResult(status -> {
+                    if (locked()) {
+                        retirePartition(name, cutoff);
+                    }
+                });
+            } catch (Exception e) {
+                LOG.error("Could not retire outbox partition {}", name, e);
+            }
+        }
+    }
+
+    // Solo una instancia a la vez; el lock se libera al terminar cada transacción
+    private boolean locked() {
+        return Boolean.TRUE.equals(jdbc.queryForObject(
+                "SELECT pg_try_advisory_xact_lock(hashtext('pos.outbox.partition_maintenance'))", Boolean.class));
+    }
+
+    /**
+     * Crea la partición del día. Si la partición DEFAULT ya tiene filas de ese rango (p.ej. tras una parada
+     * más larga que premake-days), CREATE ... PARTITION OF fallaría: se crea la tabla suelta, se mueven
+     * las filas desde DEFAULT y después se adjunta.
+     */
+    private void createPartition(LocalDate day) {
+        String name = "outbox_p" + day.format(SUFFIX);
+        Boolean exists = jdbc.queryForObject("SELECT to_regclass(?) IS NOT NULL", Boolean.class, "pos." + name);
+        if (Boolean.TRUE.equals(exists)) {
+            return;
+        }
+        String from = day + " 00:00:00+00";
+        String to = day.plusDays(1) + " 00:00:00+00";
+        jdbc.execute("CREATE TABLE pos." + name + " (LIKE pos.outbox INCLUDING DEFAULTS INCLUDING CONSTRAINTS)");
+        int moved = jdbc.update("WITH moved AS (DELETE FROM pos." + DEFAULT_PARTITION
+                + " WHERE created_at >= ?::timestamptz AND created_at < ?::timestamptz RETURNING *) "
+                + "INSERT INTO pos." + name + " SELECT * FROM moved", from, to);
+        jdbc.execute("ALTER TABLE pos.outbox ATTACH PARTITION pos." + name
+                + " FOR VALUES FROM ('" + from + "') TO ('" + to + "')");
+        if (moved > 0) {
+            LOG.warn("Outbox partition {} created late: moved {} rows out of {}", name, moved, DEFAULT_PARTITION);
+        }
+    }
+
+    private void retirePartition(String name, LocalDate cutoff) {
+        if (!isExpired(name, cutoff)) {
+            return;
+        }
+        Boolean pending = jdbc.queryForObject(
+                "SELECT EXISTS (SELECT 1 FROM pos." + name + " WHERE sent = false)", Boolean.class);
+        if (Boolean.TRUE.equals(pending)) {
+            LOG.warn("Outbox partition {} is past retention but still has unsent rows; keeping it", name);
+            return;
+        }
+        jdbc.execute("ALTER TABLE pos.outbox DETACH PARTITION pos." + name);
+        if (dropDetached) {
+            jdbc.execute("DROP TABLE pos." + name);
+        }
+        LOG.info("Outbox partition {} {}", name, dropDetached ? "dropped" : "detached");
+    }
+
+    private boolean isExpired(String name, LocalDate cutoff) {
+        if (HISTORY.equals(name)) {
+            Boolean recent = jdbc.queryForObject(
+                    "SELECT EXISTS (SELECT 1 FROM pos." + HISTORY + " WHERE created_at >= ?::timestamptz)",
+                    Boolean.class, cutoff + " 00:00:00+00");
+            return !Boolean.TRUE.equals(recent);
+        }
+        Matcher m = DAILY.matcher(name);
+        if (!m.matches()) {
+            return false; // outbox_default y cualquier partición ajena a la rotación
+        }
+        LocalDate day = LocalDate.parse(m.group(1), SUFFIX);
+        return !day.plusDays(1).isAfter(cutoff);
+    }
+}
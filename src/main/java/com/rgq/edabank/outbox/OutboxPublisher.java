@@ -2,44 +2,199 @@ package com.rgq.edabank.outbox;
 
 import com.rgq.edabank.model.Outbox;
 import com.rgq.edabank.repository.OutboxRepository;
-import io.micrometer.core.instrument.MeterRegistry;
-import org.springframework.data.domain.PageRequest;
-import org.springframework.data.domain.Pageable;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.support.SendResult;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
 
+import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import jakarta.annotation.PostConstruct;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 @Component
+@ConditionalOnProperty(name = "app.outbox.relay", havingValue = "polling", matchIfMissing = true)
 public class OutboxPublisher {
     private static final Logger LOG = LoggerFactory.getLogger(OutboxPublisher.class);
     private final OutboxRepository outboxRepo;
     private final KafkaTemplate<String, String> kafka;
-    private final MeterRegistry meter;
+    private final OutboxMetrics metrics;
+    private final OutboxLaneCoordinator lanes;
+
+    @Value("${app.outbox.lanes.enabled:true}")
+    private boolean lanesEnabled;
+
+    @Value("${app.outbox.batch-size:500}")
+    private int batchSize;
+
+    @Value("${app.outbox.max-in-flight:100}")
+    private int maxInFlight;
+
+    @Value("${app.outbox.max-batches-per-run:10}")
+    private int maxBatchesPerRun;
 
-    public OutboxPublisher(OutboxRepository outboxRepo, KafkaTemplate<String, String> kafka, MeterRegistry meter) {
+    @Value("${app.outbox.send-timeout-ms:30000}")
+    private long sendTimeoutMs;
+
+    public OutboxPublisher(OutboxRepository outboxRepo, KafkaTemplate<String, String> kafka, OutboxMetrics metrics,
+                           OutboxLaneCoordinator lanes) {
         this.outboxRepo = outboxRepo;
         this.kafka = kafka;
-        this.meter = meter;
+        this.metrics = metrics;
+        this.lanes = lanes;
+    }
+
+    @PostConstruct
+    void checkSettings() {
+        // Con un tope igual o mayor que el lote el semáforo nunca llega a frenar un envío
+        if (maxInFlight >= batchSize) {
+            LOG.warn("app.outbox.max-in-flight ({}) does not limit batches of {}; capping it at {}",
+                    maxInFlight, batchSize, batchSize);
+            maxInFlight = batchSize;
+        }
+        // Cada lote se renueva antes de enviarse y puede tardar hasta send-timeout-ms: debe caber holgado en el lease
+        if (lanesEnabled && sendTimeoutMs * 2 > lanes.getLeaseMs()) {
+            LOG.warn("app.outbox.send-timeout-ms ({}) should be at most half of app.outbox.lanes.lease-ms ({}); "
+                    + "a slow batch may outlive its lane lease", sendTimeoutMs, lanes.getLeaseMs());
+        }
     }
 
-    @Scheduled(fixedRate = 10000)
+    @Scheduled(fixedDelayString = "${app.outbox.poll-interval-ms:10000}")
     public void publishEvents() {
-        Pageable pageable = PageRequest.of(0, 100);
-        List<Outbox> events = outboxRepo.findBySentFalseOrderByCreatedAtAsc(pageable);
+        List<Integer> ownedLanes = null;
+        if (lanesEnabled) {
+            try {
+                ownedLanes = lanes.claimLanes();
+            } catch (Exception e) {
+                LOG.error("Could not claim outbox lanes, skipping run", e);
+                return;
+            }
+            if (ownedLanes.isEmpty()) {
+                return;
+            }
+        }
+        // Drenar el backlog mientras las páginas vengan llenas, con un tope por ejecución
+        for (int i = 0; i < maxBatchesPerRun; i++) {
+            if (ownedLanes != null && i > 0 && !renew(ownedLanes)) {
+                return;
+            }
+            List<Outbox> events;
+            if (ownedLanes != null) {
+                events = outboxRepo.findUnsentInLanes(ownedLanes, lanes.getLaneCount(), batchSize);
+            } else {
+                events = outboxRepo.findUnsent(batchSize);
+            }
+            if (events.isEmpty()) {
+                return;
+            }
+            int acked = publishBatch(events);
+            if (acked < events.size() || events.size() < batchSize) {
+                return;
+            }
+        }
+    }
+
+    // El lease se reclamó al inicio de la ejecución; antes de cada lote siguiente se prolonga. Si se perdió
+    // algún carril otra instancia puede estar publicándolo, así que se corta la ejecución.
+    private boolean renew(List<Integer> ownedLanes) {
+        try {
+            List<Integer> renewed = lanes.renewLanes(ownedLanes);
+            if (renewed.size() == ownedLanes.size()) {
+                return true;
+            }
+            LOG.warn("Outbox lane lease lost mid-run: instance={} owned={} renewed={}",
+                    lanes.getInstanceId(), ownedLanes, renewed);
+        } catch (Exception e) {
+            LOG.error("Could not renew outbox lane lease, stopping run", e);
+        }
+        return false;
+    }
+
+    int publishBatch(List<Outbox> events) {
+        List<CompletableFuture<SendResult<String, String>>> futures = new ArrayList<>(events.size());
+        Semaphore inFlight = new Semaphore(Math.max(1, maxInFlight));
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(sendTimeoutMs);
+        metrics.recordBatch(events.size());
+
+        // Enviar la página completa sin bloquear; el semáforo limita los envíos pendientes
         for (Outbox event : events) {
-            LOG.info("Publishing event: {}", event);
+            LOG.debug("Publishing event: {}", event);
             try {
-                kafka.send(event.getType(), event.getAggregateId(), event.getPayload()).get();
-                event.setSent(true);
-                outboxRepo.save(event);
+                if (!inFlight.tryAcquire(remainingNanos(deadline), TimeUnit.NANOSECONDS)) {
+                    LOG.warn("Timed out waiting for in-flight capacity, deferring {} events", events.size() - futures.size());
+                    break;
+                }
+                long start = System.nanoTime();
+                CompletableFuture<SendResult<String, String>> future =
+                        kafka.send(event.getType(), event.getAggregateId(), event.getPayload());
+                future.whenComplete((r, ex) -> {
+                    inFlight.release();
+                    if (ex == null) {
+                        metrics.recordSent(event.getType(), start);
+                    } else {
+                        metrics.recordFailure(event.getType(), ex);
+                    }
+                });
+                futures.add(future);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
             } catch (Exception e) {
+                inFlight.release();
+                metrics.recordFailure(event.getType(), e);
+                futures.add(CompletableFuture.failedFuture(e));
+            }
+        }
+
+        // Esperar una sola vez por todas las confirmaciones y quedarnos con las exitosas.
+        // Si un evento de un agregado falla, los posteriores del mismo agregado no se marcan
+        // y se reenvían detrás de él en la próxima ejecución para conservar el orden.
+        List<Long> ackedIds = new ArrayList<>(futures.size());
+        Set<String> failedAggregates = new HashSet<>();
+        for (int i = 0; i < futures.size(); i++) {
+            Outbox event = events.get(i);
+            try {
+                futures.get(i).get(remainingNanos(deadline), TimeUnit.NANOSECONDS);
+                if (!failedAggregates.contains(event.getAggregateId())) {
+                    ackedIds.add(event.getId());
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            } catch (ExecutionException | TimeoutException e) {
+                failedAggregates.add(event.getAggregateId());
                 LOG.error("Error publishing event: {}", event, e);
             }
         }
+
+        if (!ackedIds.isEmpty()) {
+            long start = System.nanoTime();
+            try {
+                outboxRepo.markSent(ackedIds);
+                metrics.recordMarkSent(start);
+            } catch (Exception e) {
+                // Los eventos ya están en Kafka; se reenviarán en la próxima ejecución (at-least-once)
+                LOG.error("Error marking {} outbox events as sent", ackedIds.size(), e);
+                return 0;
+            }
+        }
+        LOG.info("Outbox batch published: {} of {} events acknowledged", ackedIds.size(), events.size());
+        return ackedIds.size();
+    }
+
+    private static long remainingNanos(long deadline) {
+        return Math.max(0L, deadline - System.nanoTime());
     }
 }
@@ -0,0 +1,350 @@
+package com.rgq.edabank.outbox;
+
+import org.postgresql.PGConnection;
+import org.postgresql.PGProperty;
+import org.postgresql.replication.LogSequenceNumber;
+import org.postgresql.replication.PGReplicationStream;
+import org.postgresql.replication.fluent.logical.ChainedLogicalStreamBuilder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.support.SendResult;
+import org.springframework.stereotype.Component;
+
+import com.rgq.edabank.model.Outbox;
+import com.rgq.edabank.repository.OutboxRepository;
+
+import java.nio.ByteBuffer;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Relay del outbox basado en replicación lógica (pgoutput): recibe los INSERT confirmados de
+ * pos.outbox desde un slot de replicación y los publica en Kafka sin consultas de sondeo.
+ * Tras cada flush guarda el LSN confirmado en pos.outbox_relay_offsets y lo confirma al slot,
+ * de modo que al reiniciar retoma desde ese punto y descarta transacciones ya publicadas.
+ * <p>
+ * Un slot solo admite un consumidor activo: las réplicas compiten por un advisory lock y solo la que
+ * lo obtiene abre el slot; las demás esperan en standby. Al tomar el relevo se publican primero las
+ * filas con sent = false (p.ej. el backlog que dejó el relay por sondeo, que el slot no ve porque
+ * solo emite cambios posteriores a su creación). Las filas insertadas ya con sent = true (carga
+ * masiva sin publicación) no se publican. Las filas que el backlog y el slot ven a la vez se
+ * publican dos veces (at-least-once), igual que tras un reinicio antes del flush.
+ */
+@Component
+@ConditionalOnProperty(name = "app.outbox.relay", havingValue = "replication")
+public class OutboxReplicationRelay implements SmartLifecycle {
+    private static final Logger LOG = LoggerFactory.getLogger(OutboxReplicationRelay.class);
+
+    private final JdbcTemplate jdbc;
+    private final KafkaTemplate<String, String> kafka;
+    private final OutboxRepository outboxRepo;
+    private final OutboxMetrics metrics;
+
+    @Value("${app.outbox.replication.url:${spring.datasource.primary.url}}")
+    private String url;
+
+    @Value("${app.outbox.replication.username:${spring.datasource.primary.username}}")
+    private String username;
+
+    @Value("${app.outbox.replication.password:${spring.datasource.primary.password}}")
+    private String password;
+
+    @Value("${app.outbox.replication.slot:outbox_relay_slot}")
+    private String slotName;
+
+    @Value("${app.outbox.replication.publication:outbox_relay_pub}")
+    private String publication;
+
+    @Value("${app.outbox.replication.flush-interval-ms:50}")
+    private long flushIntervalMs;
+
+    @Value("${app.outbox.replication.idle-wait-ms:5}")
+    private long idleWaitMs;
+
+    // Cada cuánto una réplica en standby reintenta tomar el advisory lock del relay
+    @Value("${app.outbox.replication.standby-poll-ms:5000}")
+    private long standbyPollMs;
+
+    @Value("${app.outbox.batch-size:500}")
+    private int batchSize;
+
+    @Value("${app.outbox.send-timeout-ms:30000}")
+    private long sendTimeoutMs;
+
+    private volatile boolean running = false;
+    private Thread worker;
+
+    private final List<CompletableFuture<SendResult<String, String>>> pendingSends = new ArrayList<>();
+    private final List<Long> pendingIds = new ArrayList<>();
+    private LogSequenceNumber confirmedLsn;
+    private Connection leaderConnection;
+
+    public OutboxReplicationRelay(JdbcTemplate jdbc, KafkaTemplate<String, String> kafka, OutboxRepository outboxRepo,
+                                  OutboxMetrics metrics) {
+        this.jdbc = jdbc;
+        this.kafka = kafka;
+        this.outboxRepo = outboxRepo;
+        this.metrics = metrics;
+    }
+
+    @Override
+    public void start() {
+        running = true;
+        worker = new Thread(this::run, "outbox-replication-relay");
+        worker.setDaemon(true);
+        worker.start();
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+        if (worker != null) {
+            try {
+                worker.join(TimeUnit.SECONDS.toMillis(10));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    private void run() {
+        long backoffMs = 1000;
+        boolean standbyLogged = false;
+        while (running) {
+            // El lock es de sesión: se libera solo si esta conexión se cierra o se cae
+            try (Connection lock = openConnection(false)) {
+                if (!tryLeadership(lock)) {
+                    if (!standbyLogged) {
+                        LOG.info("Outbox replication relay on standby: slot {} is led by another instance", slotName);
+                        standbyLogged = true;
+                    }
+                    sleep(standbyPollMs);
+                    continue;
+                }
+                standbyLogged = false;
+                leaderConnection = lock;
+                LOG.info("Outbox replication relay acquired leadership for slot {}", slotName);
+                prepareSlot();
+                drainBacklog();
+                try (Connection con = openConnection(true)) {
+                    backoffMs = 1000;
+                    stream(con);
+                }
+            } catch (Exception e) {
+                LOG.error("Outbox replication relay failed, reconnecting in {} ms", backoffMs, e);
+                pendingSends.clear();
+                pendingIds.clear();
+                sleep(backoffMs);
+                backoffMs = Math.min(backoffMs * 2, 30000);
+            } finally {
+                leaderConnection = null;
+            }
+        }
+    }
+
+    private boolean tryLeadership(Connection lock) throws Exception {
+        try (PreparedStatement ps = lock.prepareStatement("SELECT pg_try_advisory_lock(hashtext(?))")) {
+            ps.setString(1, "outbox-relay:" + slotName);
+            try (ResultSet rs = ps.executeQuery()) {
+                return rs.next() && rs.getBoolean(1);
+            }
+        }
+    }
+
+    // Filas pendientes que el slot no va a emitir: las anteriores a su creación o a esta instancia
+    private void drainBacklog() throws Exception {
+        int drained = 0;
+        while (running) {
+            List<Outbox> events = outboxRepo.findUnsent(batchSize);
+            if (events.isEmpty()) {
+                break;
+            }
+            for (Outbox event : events) {
+                send(event.getType(), event.getAggregateId(), event.getPayload(), event.getId());
+            }
+            awaitAndMarkSent();
+            drained += events.size();
+        }
+        if (drained > 0) {
+            LOG.info("Outbox replication relay drained {} unsent rows before streaming", drained);
+        }
+    }
+
+    private void prepareSlot() {
+        Integer pubs = jdbc.queryForObject("SELECT count(*) FROM pg_publication WHERE pubname = ?", Integer.class, publication);
+        if (pubs == null || pubs == 0) {
+            jdbc.execute("CREATE PUBLICATION " + publication
+                    + " FOR TABLE pos.outbox WITH (publish = 'insert', publish_via_partition_root = true)");
+            LOG.info("Created publication {} for pos.outbox", publication);
+        }
+        Integer slots = jdbc.queryForObject("SELECT count(*) FROM pg_replication_slots WHERE slot_name = ?", Integer.class, slotName);
+        if (slots == null || slots == 0) {
+            jdbc.queryForList("SELECT slot_name FROM pg_create_logical_replication_slot(?, 'pgoutput')", slotName);
+            LOG.info("Created logical replication slot {}", slotName);
+        }
+        List<String> stored = jdbc.queryForList(
+                "SELECT confirmed_lsn FROM pos.outbox_relay_offsets WHERE slot_name = ?", String.class, slotName);
+        confirmedLsn = stored.isEmpty() ? null : LogSequenceNumber.valueOf(stored.get(0));
+    }
+
+    private Connection openConnection(boolean replication) throws Exception {
+        Properties props = new Properties();
+        PGProperty.USER.set(props, username);
+        PGProperty.PASSWORD.set(props, password);
+        if (replication) {
+            PGProperty.ASSUME_MIN_SERVER_VERSION.set(props, "10");
+            PGProperty.REPLICATION.set(props, "database");
+            PGProperty.PREFER_QUERY_MODE.set(props, "simple");
+        }
+        return DriverManager.getConnection(url, props);
+    }
+
+    private void stream(Connection con) throws Exception {
+        PGConnection pg = con.unwrap(PGConnection.class);
+        ChainedLogicalStreamBuilder builder = pg.getReplicationAPI().replicationStream().logical()
+                .withSlotName(slotName)
+                .withSlotOption("proto_version", 1)
+                .withSlotOption("publication_names", publication)
+                .withStatusInterval(10, TimeUnit.SECONDS);
+        if (confirmedLsn != null) {
+            builder.withStartPosition(confirmedLsn);
+        }
+        PGReplicationStream stream = builder.start();
+        LOG.info("Outbox replication relay streaming from slot {} (confirmed LSN {})", slotName,
+                confirmedLsn == null ? "none" : confirmedLsn.asString());
+
+        PgOutputDecoder decoder = new PgOutputDecoder();
+        boolean inTxn = false;
+        boolean skipTxn = false;
+        long txnLsn = 0L;
+        long lastCommitLsn = confirmedLsn == null ? 0L : confirmedLsn.asLong();
+        long lastFlush = System.currentTimeMillis();
+
+        while (running) {
+            ByteBuffer buf = stream.readPending();
+            if (buf == null) {
+                if (!inTxn && lastCommitLsn > (confirmedLsn == null ? 0L : confirmedLsn.asLong())) {
+                    flush(stream, lastCommitLsn);
+                    lastFlush = System.currentTimeMillis();
+                }
+                sleep(idleWaitMs);
+                continue;
+            }
+            PgOutputDecoder.Message msg = decoder.decode(buf);
+            switch (msg.kind) {
+                case BEGIN:
+                    inTxn = true;
+                    txnLsn = msg.lsn;
+                    // Transacciones ya publicadas antes de un reinicio
+                    skipTxn = confirmedLsn != null && txnLsn <= confirmedLsn.asLong();
+                    break;
+                case INSERT:
+                    // sent = true: la fila se insertó ya publicada o sin publicar a propósito (carga masiva)
+                    if (!skipTxn && "pos".equals(msg.schema) && "outbox".equals(msg.table)
+                            && !"t".equals(msg.values.get("sent"))) {
+                        send(msg.values);
+                    }
+                    break;
+                case COMMIT:
+                    inTxn = false;
+                    if (!skipTxn) {
+                        lastCommitLsn = txnLsn;
+                    }
+                    if (pendingSends.size() >= batchSize || System.currentTimeMillis() - lastFlush >= flushIntervalMs) {
+                        if (lastCommitLsn > (confirmedLsn == null ? 0L : confirmedLsn.asLong())) {
+                            flush(stream, lastCommitLsn);
+                        }
+                        lastFlush = System.currentTimeMillis();
+                    }
+                    break;
+                default:
+                    break;
+            }
+        }
+        if (!inTxn && !pendingSends.isEmpty()) {
+            flush(stream, lastCommitLsn);
+        }
+    }
+
+    private void send(Map<String, String> row) {
+        send(row.get("type"), row.get("aggregate_id"), row.get("payload"), Long.valueOf(row.get("id")));
+    }
+
+    private void send(String topic, String key, String payload, Long id) {
+        if (topic == null) {
+            LOG.warn("Skipping outbox row without topic: id={}", id);
+            return;
+        }
+        long start = System.nanoTime();
+        CompletableFuture<SendResult<String, String>> future = kafka.send(topic, key, payload);
+        future.whenComplete((r, ex) -> {
+            if (ex == null) {
+                metrics.recordSent(topic, start);
+            } else {
+                metrics.recordFailure(topic, ex);
+            }
+        });
+        pendingSends.add(future);
+        pendingIds.add(id);
+    }
+
+    // Espera las confirmaciones de Kafka, marca las filas y solo entonces avanza el LSN del slot
+    private void flush(PGReplicationStream stream, long commitLsn) throws Exception {
+        // Si se perdió la conexión del lock otra réplica puede tomar el relevo: no se confirma nada más
+        if (leaderConnection == null || !leaderConnection.isValid(1)) {
+            throw new IllegalStateException("Lost outbox relay leadership connection");
+        }
+        int published = pendingIds.size();
+        awaitAndMarkSent();
+        LogSequenceNumber lsn = LogSequenceNumber.valueOf(commitLsn);
+        jdbc.update("INSERT INTO pos.outbox_relay_offsets (slot_name, confirmed_lsn, updated_at) VALUES (?, ?, now()) "
+                + "ON CONFLICT (slot_name) DO UPDATE SET confirmed_lsn = EXCLUDED.confirmed_lsn, updated_at = now()",
+                slotName, lsn.asString());
+        stream.setAppliedLSN(lsn);
+        stream.setFlushedLSN(lsn);
+        stream.forceUpdateStatus();
+        confirmedLsn = lsn;
+        LOG.debug("Outbox relay flushed {} events up to LSN {}", published, lsn.asString());
+    }
+
+    private void awaitAndMarkSent() throws Exception {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(sendTimeoutMs);
+        for (CompletableFuture<SendResult<String, String>> f : pendingSends) {
+            f.get(Math.max(0L, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+        }
+        if (!pendingIds.isEmpty()) {
+            metrics.recordBatch(pendingIds.size());
+            long start = System.nanoTime();
+            outboxRepo.markSent(new ArrayList<>(pendingIds));
+            metrics.recordMarkSent(start);
+        }
+        pendingSends.clear();
+        pendingIds.clear();
+    }
+
+    private static void sleep(long ms) {
+        try {
+            Thread.sleep(ms);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
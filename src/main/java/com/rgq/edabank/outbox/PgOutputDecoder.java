@@ -0,0 +1,114 @@
+package com.rgq.edabank.outbox;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Decodificador mínimo del protocolo lógico pgoutput (proto_version 1).
+ * Solo interpreta BEGIN, COMMIT, RELATION e INSERT; el resto de mensajes se ignora.
+ */
+final class PgOutputDecoder {
+
+    enum Kind { BEGIN, COMMIT, INSERT, OTHER }
+
+    static final class Message {
+        final Kind kind;
+        final long lsn;
+        final String schema;
+        final String table;
+        final Map<String, String> values;
+
+        Message(Kind kind, long lsn, String schema, String table, Map<String, String> values) {
+            this.kind = kind;
+            this.lsn = lsn;
+            this.schema = schema;
+            this.table = table;
+            this.values = values;
+        }
+    }
+
+    private static final Message OTHER = new Message(Kind.OTHER, 0L, null, null, null);
+
+    private static final class Relation {
+        final String schema;
+        final String table;
+        final String[] columns;
+
+        Relation(String schema, String table, String[] columns) {
+            this.schema = schema;
+            this.table = table;
+            this.columns = columns;
+        }
+    }
+
+    private final Map<Integer, Relation> relations = new HashMap<>();
+
+    Message decode(ByteBuffer buf) {
+        byte type = buf.get();
+        switch (type) {
+            case 'B': {
+                long finalLsn = buf.getLong();
+                return new Message(Kind.BEGIN, finalLsn, null, null, null);
+            }
+            case 'C': {
+                buf.get(); // flags
+                long commitLsn = buf.getLong();
+                return new Message(Kind.COMMIT, commitLsn, null, null, null);
+            }
+            case 'R': {
+                int relId = buf.getInt();
+                String schema = readString(buf);
+                String table = readString(buf);
+                buf.get(); // replica identity
+                int ncols = buf.getShort();
+                String[] columns = new String[ncols];
+                for (int i = 0; i < ncols; i++) {
+                    buf.get(); // flags
+                    columns[i] = readString(buf);
+                    buf.getInt(); // type oid
+                    buf.getInt(); // type modifier
+                }
+                relations.put(relId, new Relation(schema, table, columns));
+                return OTHER;
+            }
+            case 'I': {
+                int relId = buf.getInt();
+                buf.get(); // 'N'
+                Relation rel = relations.get(relId);
+                if (rel == null) {
+                    throw new IllegalStateException("pgoutput INSERT for unknown relation " + relId);
+                }
+                return new Message(Kind.INSERT, 0L, rel.schema, rel.table, readTuple(buf, rel));
+            }
+            default:
+                return OTHER;
+        }
+    }
+
+    private static Map<String, String> readTuple(ByteBuffer buf, Relation rel) {
+        int ncols = buf.getShort();
+        Map<String, String> values = new HashMap<>(ncols * 2);
+        for (int i = 0; i < ncols; i++) {
+            byte kind = buf.get();
+            String name = i < rel.columns.length ? rel.columns[i] : "col" + i;
+            if (kind == 't') {
+                int len = buf.getInt();
+                values.put(name, new String(buf.array(), buf.arrayOffset() + buf.position(), len, StandardCharsets.UTF_8));
+                buf.position(buf.position() + len);
+            } else {
+                // 'n' null, 'u' TOAST sin cambios: no aplica a INSERT
+                values.put(name, null);
+            }
+        }
+        return values;
+    }
+
+    private static String readString(ByteBuffer buf) {
+        int start = buf.position();
+        while (buf.get() != 0) { /* hasta el terminador */ }
+        int len = buf.position() - start - 1;
+        return new String(buf.array(), buf.arrayOffset() + start, len, StandardCharsets.UTF_8);
+    }
+}
@@ -4,19 +4,34 @@ import com.rgq.edabank.model.Outbox;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
-import org.springframework.data.domain.Pageable;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.Collection;
 import java.util.List;
 
 @Repository
 public interface OutboxRepository extends JpaRepository<Outbox, Long> {
 
-    @Transactional(readOnly = true)
-    List<Outbox> findBySentFalseOrderByCreatedAtAsc(Pageable pageable);
+    // Lectura contra el primario (markSent escribe allí): con readOnly iría a la réplica y, con retraso,
+    // devolvería filas ya marcadas que se volverían a publicar
+    @Transactional
+    @Query(value = "SELECT * FROM pos.outbox WHERE sent = false ORDER BY created_at, id LIMIT :limit", nativeQuery = true)
+    List<Outbox> findUnsent(@Param("limit") int limit);
 
+    // Lectura contra el primario: solo filas de los carriles que esta instancia tiene reclamados
+    @Transactional
+    @Query(value = "SELECT * FROM pos.outbox WHERE sent = false "
+            + "AND (hashtext(coalesce(aggregate_id, '')) & 2147483647) % :laneCount IN (:lanes) "
+            + "ORDER BY created_at, id LIMIT :limit", nativeQuery = true)
+    List<Outbox> findUnsentInLanes(@Param("lanes") Collection<Integer> lanes,
+                                   @Param("laneCount") int laneCount,
+                                   @Param("limit") int limit);
+
+    // Marca como enviados todos los ids confirmados por Kafka en un único UPDATE
+    @Transactional
     @Modifying
-    @Query("update Outbox o set o.sent = true where o.id = ?1")
-    void markSent(Long id);
-}
\ No newline at end of file
+    @Query("update Outbox o set o.sent = true where o.id in :ids")
+    int markSent(@Param("ids") Collection<Long> ids);
+}
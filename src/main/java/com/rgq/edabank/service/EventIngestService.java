@@ -0,0 +1,125 @@
+package com.rgq.edabank.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.rgq.edabank.dto.IngestResultDto;
+import com.rgq.edabank.dto.PaymentDto;
+import com.rgq.edabank.dto.TransferDto;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Ingesta por lotes de pagos y transferencias: valida cada elemento y persiste las filas de
+ * negocio y de pos.outbox con inserts JDBC en batch dentro de una única transacción.
+ * Los ids ya existentes se reportan como duplicados sin abortar el lote.
+ */
+@Service
+public class EventIngestService {
+
+    private static final String INSERT_PAYMENT =
+            "INSERT INTO pos.payments (id, type, amount, currency, account_id, payload) "
+                    + "VALUES (?, ?, ?, ?, ?, ?::jsonb) ON CONFLICT (id) DO NOTHING";
+    private static final String INSERT_TRANSFER =
+            "INSERT INTO pos.transfers (id, type, amount, from_account, to_account, payload) "
+                    + "VALUES (?, ?, ?, ?, ?, ?::jsonb) ON CONFLICT (id) DO NOTHING";
+    private static final String INSERT_OUTBOX =
+            "INSERT INTO pos.outbox (aggregate_type, aggregate_id, type, payload) VALUES (?, ?, ?, ?::jsonb)";
+
+    private final JdbcTemplate jdbc;
+    private final Validator validator;
+    private final ObjectMapper mapper;
+
+    public EventIngestService(JdbcTemplate jdbc, Validator validator, ObjectMapper mapper) {
+        this.jdbc = jdbc;
+        this.validator = validator;
+        this.mapper = mapper;
+    }
+
+    @Transactional
+    public List<IngestResultDto> ingestPayments(List<PaymentDto> items) throws JsonProcessingException {
+        IngestResultDto[] results = new IngestResultDto[items.size()];
+        List<Object[]> rows = new ArrayList<>(items.size());
+        List<Integer> rowIndex = new ArrayList<>(items.size());
+        for (int i = 0; i < items.size(); i++) {
+            PaymentDto dto = items.get(i);
+            List<String> errors = validate(dto);
+            if (!errors.isEmpty()) {
+                results[i] = new IngestResultDto(i, dto == null ? null : dto.getId(), IngestResultDto.INVALID, errors);
+                continue;
+            }
+            rows.add(new Object[]{dto.getId(), dto.getType() != null ? dto.getType() : "payment", dto.getAmount(),
+                    dto.getCurrency(), dto.getAccountId(), mapper.writeValueAsString(dto)});
+            rowIndex.add(i);
+        }
+        persist(INSERT_PAYMENT, "payment", "payments.events", items.stream().map(d -> d == null ? null : d.getId()).toList(),
+                rows, rowIndex, results);
+        return Arrays.asList(results);
+    }
+
+    @Transactional
+    public List<IngestResultDto> ingestTransfers(List<TransferDto> items) throws JsonProcessingException {
+        IngestResultDto[] results = new IngestResultDto[items.size()];
+        List<Object[]> rows = new ArrayList<>(items.size());
+        List<Integer> rowIndex = new ArrayList<>(items.size());
+        for (int i = 0; i < items.size(); i++) {
+            TransferDto dto = items.get(i);
+            List<String> errors = validate(dto);
+            if (!errors.isEmpty()) {
+                results[i] = new IngestResultDto(i, dto == null ? null : dto.getId(), IngestResultDto.INVALID, errors);
+                continue;
+            }
+            rows.add(new Object[]{dto.getId(), dto.getType() != null ? dto.getType() : "transfer", dto.getAmount(),
+                    dto.getFrom(), dto.getTo(), mapper.writeValueAsString(dto)});
+            rowIndex.add(i);
+        }
+        persist(INSERT_TRANSFER, "transfer", "transfers.events", items.stream().map(d -> d == null ? null : d.getId()).toList(),
+                rows, rowIndex, results);
+        return Arrays.asList(results);
+    }
+
+    private void persist(String insertSql, String aggregateType, String topic, List<String> ids,
+                         List<Object[]> rows, List<Integer> rowIndex, IngestResultDto[] results) {
+        if (rows.isEmpty()) {
+            return;
+        }
+        int[] counts = jdbc.batchUpdate(insertSql, rows);
+        List<Object[]> outbox = new ArrayList<>(rows.size());
+        for (int r = 0; r < rows.size(); r++) {
+            int i = rowIndex.get(r);
+            // 0 filas afectadas => ON CONFLICT: el id ya existía (o venía repetido en el mismo lote)
+            boolean inserted = counts[r] > 0 || counts[r] == Statement.SUCCESS_NO_INFO;
+            if (inserted) {
+                Object[] row = rows.get(r);
+                outbox.add(new Object[]{aggregateType, row[0], topic, row[5]});
+            }
+            results[i] = new IngestResultDto(i, ids.get(i), inserted ? IngestResultDto.ACCEPTED : IngestResultDto.DUPLICATE, null);
+        }
+        if (!outbox.isEmpty()) {
+            jdbc.batchUpdate(INSERT_OUTBOX, outbox);
+        }
+    }
+
+    private List<String> validate(Object dto) {
+        if (dto == null) {
+            return List.of("item must not be null");
+        }
+        Set<ConstraintViolation<Object>> violations = validator.validate(dto);
+        if (violations.isEmpty()) {
+            return List.of();
+        }
+        return violations.stream()
+                .map(v -> v.getPropertyPath() + " " + v.getMessage())
+                .sorted()
+                .collect(Collectors.toList());
+    }
+}
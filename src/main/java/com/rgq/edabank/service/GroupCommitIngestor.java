@@ -0,0 +1,305 @@
+package com.rgq.edabank.service;
+
+import com.rgq.edabank.dto.IngestResultDto;
+import com.rgq.edabank.dto.PaymentDto;
+import com.rgq.edabank.dto.TransferDto;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Modo de ingesta asíncrono con group commit: las peticiones se encolan en un buffer acotado y
+ * un único hilo escritor confirma muchas en la misma transacción (vía EventIngestService).
+ * Cada petición recibe un ackId cuyo estado se consulta con status() o esperando su future.
+ * Si la transacción del grupo falla, sus peticiones se reintentan de una en una para que una fila
+ * inválida no arrastre al resto. Tras stop() no se aceptan peticiones y las que quedaran en el
+ * buffer se completan con error.
+ */
+@Service
+@ConditionalOnProperty(name = "app.ingest.async.enabled", havingValue = "true")
+public class GroupCommitIngestor implements SmartLifecycle {
+    private static final Logger log = LoggerFactory.getLogger(GroupCommitIngestor.class);
+
+    public static final String PENDING = "pending";
+    public static final String FAILED = "failed";
+
+    public static final class Ack {
+        private final String ackId;
+        private final Object dto;
+        private final CompletableFuture<IngestResultDto> future = new CompletableFuture<>();
+        private volatile long completedAt;
+
+        Ack(String ackId, Object dto) {
+            this.ackId = ackId;
+            this.dto = dto;
+        }
+
+        public String getAckId() { return ackId; }
+        public CompletableFuture<IngestResultDto> getFuture() { return future; }
+    }
+
+    private final EventIngestService ingestService;
+    private final TransactionTemplate tx;
+    private final BlockingQueue<Ack> queue;
+    private final Map<String, Ack> acks = new ConcurrentHashMap<>();
+    private final DistributionSummary groupSize;
+
+    @Value("${app.ingest.async.max-group-size:500}")
+    private int maxGroupSize;
+
+    @Value("${app.ingest.async.linger-ms:0}")
+    private long lingerMs;
+
+    @Value("${app.ingest.async.status-ttl-ms:300000}")
+    private long statusTtlMs;
+
+    private volatile boolean running = false;
+    // El escritor ya no drena: lo que entre en el buffer a partir de aquí no se confirmaría nunca
+    private volatile boolean stopped = false;
+    private Thread writer;
+    private long lastEviction = System.currentTimeMillis();
+
+    public GroupCommitIngestor(EventIngestService ingestService, TransactionTemplate tx, MeterRegistry registry,
+                               @Value("${app.ingest.async.capacity:10000}") int capacity) {
+        this.ingestService = ingestService;
+        this.tx = tx;
+        this.queue = new ArrayBlockingQueue<>(capacity);
+        Gauge.builder("ingest.async.queue.size", queue, BlockingQueue::size)
+                .description("Requests waiting for group commit")
+                .register(registry);
+        this.groupSize = DistributionSummary.builder("ingest.async.group.size")
+                .description("Requests committed per group-commit transaction")
+                .publishPercentileHistogram()
+                .register(registry);
+    }
+
+    /** Encola el evento; devuelve null si el buffer está lleno o el ingestor está parado. */
+    public Ack submit(PaymentDto dto) {
+        return enqueue(dto);
+    }
+
+    /** Encola el evento; devuelve null si el buffer está lleno o el ingestor está parado. */
+    public Ack submit(TransferDto dto) {
+        return enqueue(dto);
+    }
+
+    public Map<String, Object> status(String ackId) {
+        Ack ack = acks.get(ackId);
+        if (ack == null) {
+            return null;
+        }
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("ackId", ackId);
+        if (!ack.future.isDone()) {
+            body.put("status", PENDING);
+        } else if (ack.future.isCompletedExceptionally()) {
+            body.put("status", FAILED);
+            body.put("errors", List.of(String.valueOf(ack.future.handle((r, e) -> e == null ? null : e.getMessage()).join())));
+        } else {
+            IngestResultDto r = ack.future.join();
+            body.put("id", r.getId());
+            body.put("status", r.getStatus());
+            body.put("errors", r.getErrors());
+        }
+        return body;
+    }
+
+    private Ack enqueue(Object dto) {
+        if (!running) {
+            return null;
+        }
+        Ack ack = new Ack(UUID.randomUUID().toString(), dto);
+        acks.put(ack.ackId, ack);
+        if (!queue.offer(ack)) {
+            acks.remove(ack.ackId);
+            return null;
+        }
+        // stop() pudo vaciar el buffer entre la comprobación y el offer
+        if (stopped && queue.remove(ack)) {
+            acks.remove(ack.ackId);
+            return null;
+        }
+        return ack;
+    }
+
+    @Override
+    public void start() {
+        running = true;
+        writer = new Thread(this::drain, "ingest-group-commit");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+        if (writer != null) {
+            try {
+                writer.join(TimeUnit.SECONDS.toMillis(30));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        failQueued(new IllegalStateException("group commit ingestor stopped"));
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    private void drain() {
+        List<Ack> group = new ArrayList<>(maxGroupSize);
+        // Al parar se sigue drenando lo ya aceptado para no perder peticiones con 202
+        while (running || !queue.isEmpty()) {
+            try {
+                Ack first = queue.poll(100, TimeUnit.MILLISECONDS);
+                evictExpired();
+                if (first == null) {
+                    continue;
+                }
+                group.add(first);
+                queue.drainTo(group, maxGroupSize - group.size());
+                if (lingerMs > 0 && group.size() < maxGroupSize) {
+                    long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(lingerMs);
+                    while (group.size() < maxGroupSize) {
+                        Ack next = queue.poll(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+                        if (next == null) break;
+                        group.add(next);
+                        queue.drainTo(group, maxGroupSize - group.size());
+                    }
+                }
+                commit(group);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                log.error("Group commit writer interrupted, failing {} pending requests", group.size() + queue.size());
+                running = false;
+                fail(group, e);
+                failQueued(e);
+                return;
+            } catch (Exception e) {
+                log.error("Group commit of {} requests failed", group.size(), e);
+                fail(group, e);
+            } finally {
+                group.clear();
+            }
+        }
+    }
+
+    private void commit(List<Ack> group) {
+        List<PaymentDto> payments = new ArrayList<>();
+        List<Ack> paymentAcks = new ArrayList<>();
+        List<TransferDto> transfers = new ArrayList<>();
+        List<Ack> transferAcks = new ArrayList<>();
+        for (Ack ack : group) {
+            if (ack.dto instanceof PaymentDto p) {
+                payments.add(p);
+                paymentAcks.add(ack);
+            } else {
+                transfers.add((TransferDto) ack.dto);
+                transferAcks.add(ack);
+            }
+        }
+        // Una sola transacción para todo el grupo
+        List<List<IngestResultDto>> results;
+        try {
+            results = tx.execute(status -> {
+                try {
+                    return List.of(
+                            payments.isEmpty() ? List.<IngestResultDto>of() : ingestService.ingestPayments(payments),
+                            transfers.isEmpty() ? List.<IngestResultDto>of() : ingestService.ingestTransfers(transfers));
+                } catch (Exception e) {
+                    throw new IllegalStateException("group commit failed: " + e.getMessage(), e);
+                }
+            });
+        } catch (RuntimeException e) {
+            if (group.size() == 1) {
+                throw e;
+            }
+            log.warn("Group commit of {} requests failed, retrying them one by one", group.size(), e);
+            commitEach(group);
+            return;
+        }
+        groupSize.record(group.size());
+        long now = System.currentTimeMillis();
+        complete(paymentAcks, results.get(0), now);
+        complete(transferAcks, results.get(1), now);
+    }
+
+    // Cada petición en su propia transacción: solo fallan las que fallarían solas
+    private void commitEach(List<Ack> group) {
+        for (Ack ack : group) {
+            try {
+                IngestResultDto result = tx.execute(status -> {
+                    try {
+                        return ack.dto instanceof PaymentDto p
+                                ? ingestService.ingestPayments(List.of(p)).get(0)
+                                : ingestService.ingestTransfers(List.of((TransferDto) ack.dto)).get(0);
+                    } catch (Exception e) {
+                        throw new IllegalStateException("ingest failed: " + e.getMessage(), e);
+                    }
+                });
+                groupSize.record(1);
+                ack.completedAt = System.currentTimeMillis();
+                ack.future.complete(result);
+            } catch (RuntimeException e) {
+                log.error("Ingest of request {} failed", ack.ackId, e);
+                fail(List.of(ack), e);
+            }
+        }
+    }
+
+    private void failQueued(Throwable cause) {
+        stopped = true;
+        List<Ack> left = new ArrayList<>();
+        queue.drainTo(left);
+        if (!left.isEmpty()) {
+            log.warn("Failing {} queued requests that were not committed", left.size());
+            fail(left, cause);
+        }
+    }
+
+    private static void fail(Collection<Ack> acks, Throwable cause) {
+        long now = System.currentTimeMillis();
+        for (Ack ack : acks) {
+            ack.completedAt = now;
+            ack.future.completeExceptionally(cause);
+        }
+    }
+
+    private static void complete(List<Ack> acks, List<IngestResultDto> results, long now) {
+        for (int i = 0; i < acks.size(); i++) {
+            Ack ack = acks.get(i);
+            ack.completedAt = now;
+            ack.future.complete(results.get(i));
+        }
+    }
+
+    private void evictExpired() {
+        long now = System.currentTimeMillis();
+        if (now - lastEviction < 1000) {
+            return;
+        }
+        lastEviction = now;
+        acks.values().removeIf(a -> a.completedAt > 0 && now - a.completedAt > statusTtlMs);
+    }
+}
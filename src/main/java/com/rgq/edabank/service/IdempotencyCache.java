@@ -0,0 +1,152 @@
+package com.rgq.edabank.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Service;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Caché de idempotencia para la ingesta: guarda la respuesta original por (ámbito, clave) y la
+ * devuelve en los reintentos sin tocar la base de datos. Es un LRU en memoria acotado con TTL.
+ * Los reintentos que llegan mientras la petición original sigue en curso esperan su respuesta en
+ * lugar de ejecutarse en paralelo. Solo se cachean respuestas finales: un 202 de la ingesta
+ * asíncrona todavía puede acabar en error.
+ */
+@Service
+public class IdempotencyCache {
+
+    public static final String REPLAYED_HEADER = "Idempotent-Replayed";
+
+    private static final class Entry {
+        final int status;
+        final Object body;
+        final long expiresAt;
+
+        Entry(int status, Object body, long expiresAt) {
+            this.status = status;
+            this.body = body;
+            this.expiresAt = expiresAt;
+        }
+    }
+
+    private final Map<String, Entry> local;
+    private final Map<String, CompletableFuture<ResponseEntity<?>>> inFlight = new ConcurrentHashMap<>();
+    private final Counter hits;
+    private final Counter misses;
+    private final Counter coalesced;
+
+    @Value("${app.ingest.idempotency.enabled:true}")
+    private boolean enabled;
+
+    @Value("${app.ingest.idempotency.ttl-ms:600000}")
+    private long ttlMs;
+
+    public IdempotencyCache(MeterRegistry registry,
+                            @Value("${app.ingest.idempotency.max-entries:100000}") int maxEntries) {
+        this.local = new LinkedHashMap<>(1024, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                return size() > maxEntries;
+            }
+        };
+        this.hits = Counter.builder("ingest.idempotency.requests").tag("result", "hit")
+                .description("Ingest requests answered from the idempotency cache").register(registry);
+        this.misses = Counter.builder("ingest.idempotency.requests").tag("result", "miss")
+                .description("Ingest requests not found in the idempotency cache").register(registry);
+        this.coalesced = Counter.builder("ingest.idempotency.requests").tag("result", "coalesced")
+                .description("Ingest requests that waited for an in-flight request with the same key").register(registry);
+    }
+
+    /**
+     * Devuelve la respuesta cacheada para la clave, espera a la petición en curso con la misma clave
+     * o ejecuta la petición y cachea su respuesta si es 2xx y final.
+     */
+    public ResponseEntity<?> execute(String scope, String key, Supplier<ResponseEntity<?>> request) {
+        if (!enabled || key == null || key.isBlank()) {
+            return request.get();
+        }
+        String cacheKey = scope + ":" + key;
+        Entry cached = get(cacheKey);
+        if (cached != null) {
+            hits.increment();
+            return replay(cached.status, cached.body);
+        }
+        CompletableFuture<ResponseEntity<?>> mine = new CompletableFuture<>();
+        CompletableFuture<ResponseEntity<?>> running = inFlight.putIfAbsent(cacheKey, mine);
+        if (running != null) {
+            coalesced.increment();
+            return await(running);
+        }
+        try {
+            // La petición original pudo terminar entre la consulta a la caché y el registro
+            cached = get(cacheKey);
+            if (cached != null) {
+                hits.increment();
+                ResponseEntity<?> response = replay(cached.status, cached.body);
+                mine.complete(response);
+                return response;
+            }
+            misses.increment();
+            ResponseEntity<?> response = request.get();
+            if (isFinalSuccess(response)) {
+                put(cacheKey, new Entry(response.getStatusCode().value(), response.getBody(), System.currentTimeMillis() + ttlMs));
+            }
+            mine.complete(response);
+            return response;
+        } catch (RuntimeException e) {
+            mine.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(cacheKey, mine);
+        }
+    }
+
+    private static boolean isFinalSuccess(ResponseEntity<?> response) {
+        return response.getStatusCode().is2xxSuccessful() && response.getStatusCode().value() != HttpStatus.ACCEPTED.value();
+    }
+
+    private static ResponseEntity<?> replay(int status, Object body) {
+        return ResponseEntity.status(status).header(REPLAYED_HEADER, "true").body(body);
+    }
+
+    private static ResponseEntity<?> await(CompletableFuture<ResponseEntity<?>> running) {
+        try {
+            ResponseEntity<?> response = running.join();
+            return replay(response.getStatusCode().value(), response.getBody());
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw e;
+        }
+    }
+
+    private Entry get(String cacheKey) {
+        long now = System.currentTimeMillis();
+        synchronized (local) {
+            Entry e = local.get(cacheKey);
+            if (e != null) {
+                if (e.expiresAt > now) {
+                    return e;
+                }
+                local.remove(cacheKey);
+            }
+        }
+        return null;
+    }
+
+    private void put(String cacheKey, Entry entry) {
+        synchronized (local) {
+            local.put(cacheKey, entry);
+        }
+    }
+}
@@ -0,0 +1,227 @@
+package com.rgq.edabank.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.rgq.edabank.dto.IngestResultDto;
+import com.rgq.edabank.dto.PaymentDto;
+import com.rgq.edabank.dto.TransferDto;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Ingesta en streaming de NDJSON (un evento JSON por línea). Lee el cuerpo de forma incremental,
+ * confirma cada bloque de chunk-size líneas en su propia transacción vía EventIngestService y
+ * escribe una línea de progreso por bloque. No se lee el siguiente bloque hasta que el anterior
+ * está confirmado, así la base de datos marca el ritmo y la memoria queda acotada a un bloque.
+ */
+@Service
+public class NdjsonIngestService {
+    private static final Logger log = LoggerFactory.getLogger(NdjsonIngestService.class);
+
+    private final EventIngestService ingestService;
+    private final ObjectMapper mapper;
+
+    @Value("${app.ingest.stream-chunk-size:1000}")
+    private int chunkSize;
+
+    @Value("${app.ingest.stream-max-line-chars:65536}")
+    private int maxLineChars;
+
+    public NdjsonIngestService(EventIngestService ingestService, ObjectMapper mapper) {
+        this.ingestService = ingestService;
+        this.mapper = mapper;
+    }
+
+    @FunctionalInterface
+    private interface ChunkSink<T> {
+        List<IngestResultDto> write(List<T> chunk) throws Exception;
+    }
+
+    public Map<String, Object> ingestPayments(InputStream in, OutputStream progress) throws IOException {
+        return ingest(in, progress, PaymentDto.class, ingestService::ingestPayments);
+    }
+
+    public Map<String, Object> ingestTransfers(InputStream in, OutputStream progress) throws IOException {
+        return ingest(in, progress, TransferDto.class, ingestService::ingestTransfers);
+    }
+
+    private <T> Map<String, Object> ingest(InputStream in, OutputStream progress, Class<T> type, ChunkSink<T> sink) throws IOException {
+        ObjectReader reader = mapper.readerFor(type);
+        BoundedLineReader lines = new BoundedLineReader(new InputStreamReader(in, StandardCharsets.UTF_8), maxLineChars);
+        List<T> chunk = new ArrayList<>(chunkSize);
+        List<Integer> chunkIndex = new ArrayList<>(chunkSize);
+        List<IngestResultDto> rejected = new ArrayList<>();
+        long[] totals = new long[3]; // accepted, duplicate, invalid
+        int chunkNo = 0;
+        int index = 0;
+        String line;
+        while ((line = lines.readLine()) != null) {
+            if (!lines.overflowed() && line.isBlank()) {
+                continue;
+            }
+            int i = index++;
+            if (lines.overflowed()) {
+                rejected.add(new IngestResultDto(i, null, IngestResultDto.INVALID, List.of("line exceeds " + maxLineChars + " chars")));
+            } else {
+                try {
+                    chunk.add(reader.readValue(line));
+                    chunkIndex.add(i);
+                } catch (IOException e) {
+                    rejected.add(new IngestResultDto(i, null, IngestResultDto.INVALID, List.of("malformed JSON: " + e.getOriginalMessage())));
+                }
+            }
+            if (chunk.size() + rejected.size() >= chunkSize) {
+                if (!commitChunk(++chunkNo, chunk, chunkIndex, rejected, sink, totals, progress)) {
+                    return finish(progress, totals, false);
+                }
+            }
+        }
+        if (!chunk.isEmpty() || !rejected.isEmpty()) {
+            if (!commitChunk(++chunkNo, chunk, chunkIndex, rejected, sink, totals, progress)) {
+                return finish(progress, totals, false);
+            }
+        }
+        return finish(progress, totals, true);
+    }
+
+    private <T> boolean commitChunk(int chunkNo, List<T> chunk, List<Integer> chunkIndex, List<IngestResultDto> rejected,
+                                    ChunkSink<T> sink, long[] totals, OutputStream progress) throws IOException {
+        Map<String, Object> line = new LinkedHashMap<>();
+        line.put("chunk", chunkNo);
+        try {
+            List<IngestResultDto> results = chunk.isEmpty() ? List.of() : sink.write(chunk);
+            long accepted = 0;
+            for (IngestResultDto r : results) {
+                // Reindexar a la posición de la línea dentro del stream completo
+                r.setIndex(chunkIndex.get(r.getIndex()));
+                if (IngestResultDto.ACCEPTED.equals(r.getStatus())) {
+                    accepted++;
+                } else {
+                    rejected.add(r);
+                }
+            }
+            long invalid = rejected.stream().filter(r -> IngestResultDto.INVALID.equals(r.getStatus())).count();
+            totals[0] += accepted;
+            totals[1] += rejected.size() - invalid;
+            totals[2] += invalid;
+            line.put("accepted", accepted);
+            line.put("duplicates", rejected.size() - invalid);
+            line.put("invalid", invalid);
+            line.put("rejected", new ArrayList<>(rejected));
+            writeLine(progress, line);
+            return true;
+        } catch (Exception e) {
+            log.error("NDJSON ingest chunk {} failed, stopping stream", chunkNo, e);
+            line.put("error", "chunk failed: " + e.getMessage());
+            writeLine(progress, line);
+            return false;
+        } finally {
+            chunk.clear();
+            chunkIndex.clear();
+            rejected.clear();
+        }
+    }
+
+    private Map<String, Object> finish(OutputStream progress, long[] totals, boolean completed) throws IOException {
+        Map<String, Object> summary = new LinkedHashMap<>();
+        summary.put("done", completed);
+        summary.put("accepted", totals[0]);
+        summary.put("duplicates", totals[1]);
+        summary.put("invalid", totals[2]);
+        writeLine(progress, summary);
+        return summary;
+    }
+
+    private void writeLine(OutputStream out, Map<String, Object> line) throws IOException {
+        out.write(mapper.writeValueAsBytes(line));
+        out.write('\n');
+        out.flush();
+    }
+
+    /**
+     * Lector de líneas con tope: nunca retiene más de maxChars + 1 caracteres. Una línea más larga
+     * (o un cuerpo sin saltos de línea) se descarta hasta el siguiente '\n' sin acumularla y se
+     * devuelve vacía con overflowed() = true.
+     */
+    static final class BoundedLineReader {
+        private final Reader in;
+        private final int maxChars;
+        private final char[] buf = new char[8192];
+        private final StringBuilder line;
+        private int pos;
+        private int limit;
+        private boolean overflowed;
+
+        BoundedLineReader(Reader in, int maxChars) {
+            this.in = in;
+            this.maxChars = maxChars;
+            this.line = new StringBuilder(Math.min(maxChars + 1, 8192));
+        }
+
+        /** Siguiente línea sin el terminador ('\n' o "\r\n"), o null al final del stream. */
+        String readLine() throws IOException {
+            line.setLength(0);
+            overflowed = false;
+            boolean read = false;
+            while (true) {
+                if (pos == limit) {
+                    limit = in.read(buf, 0, buf.length);
+                    pos = 0;
+                    if (limit <= 0) {
+                        limit = 0;
+                        break;
+                    }
+                }
+                read = true;
+                int start = pos;
+                while (pos < limit && buf[pos] != '\n') {
+                    pos++;
+                }
+                boolean eol = pos < limit;
+                if (!overflowed) {
+                    // Cabe un carácter más que el tope para un '\r' final
+                    int room = maxChars + 1 - line.length();
+                    if (pos - start > room) {
+                        overflowed = true;
+                        line.setLength(0);
+                    } else {
+                        line.append(buf, start, pos - start);
+                    }
+                }
+                if (eol) {
+                    pos++;
+                    break;
+                }
+            }
+            if (!read) {
+                return null;
+            }
+            int len = line.length();
+            if (len > 0 && line.charAt(len - 1) == '\r') {
+                line.setLength(len - 1);
+            }
+            if (line.length() > maxChars) {
+                overflowed = true;
+                line.setLength(0);
+            }
+            return line.toString();
+        }
+
+        boolean overflowed() {
+            return overflowed;
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package com.rgq.edabank.streams;
+
+import org.apache.kafka.common.serialization.Deserializer;
+import org.apache.kafka.common.serialization.Serde;
+import org.apache.kafka.common.serialization.Serializer;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Media y varianza móviles del importe por cuenta (algoritmo de Welford): tres primitivas,
+ * 24 bytes por cuenta en el store de AnomalyScoring.
+ */
+public final class AccountStats {
+
+    private static final int SIZE = Long.BYTES + 2 * Double.BYTES;
+
+    private long count;
+    private double mean;
+    private double m2;
+
+    public AccountStats() {
+    }
+
+    private AccountStats(long count, double mean, double m2) {
+        this.count = count;
+        this.mean = mean;
+        this.m2 = m2;
+    }
+
+    public void add(double x) {
+        count++;
+        double delta = x - mean;
+        mean += delta / count;
+        m2 += delta * (x - mean);
+    }
+
+    public long getCount() { return count; }
+    public double getMean() { return mean; }
+
+    /** Desviación típica muestral; 0 con menos de dos observaciones. */
+    public double getStdDev() {
+        return count < 2 ? 0.0 : Math.sqrt(m2 / (count - 1));
+    }
+
+    public static final class AccountStatsSerde implements Serde<AccountStats> {
+        @Override
+        public Serializer<AccountStats> serializer() {
+            return (topic, s) -> s == null ? null
+                    : ByteBuffer.allocate(SIZE).putLong(s.count).putDouble(s.mean).putDouble(s.m2).array();
+        }
+
+        @Override
+        public Deserializer<AccountStats> deserializer() {
+            return (topic, data) -> {
+                if (data == null) {
+                    return null;
+                }
+                ByteBuffer buf = ByteBuffer.wrap(data);
+                return new AccountStats(buf.getLong(), buf.getDouble(), buf.getDouble());
+            };
+        }
+    }
+}
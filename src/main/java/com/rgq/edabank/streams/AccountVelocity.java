@@ -0,0 +1,67 @@
+package com.rgq.edabank.streams;
+
+import org.apache.kafka.common.serialization.Deserializer;
+import org.apache.kafka.common.serialization.Serde;
+import org.apache.kafka.common.serialization.Serializer;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Agregado por cuenta y ventana de VelocityAggregation: número de movimientos e importe total.
+ * alerted indica que la ventana ya superó los límites y alertedNow que los superó con el último
+ * evento, de modo que cada ventana genera una sola alerta. Se guarda en 17 bytes en RocksDB.
+ */
+public final class AccountVelocity {
+
+    private static final int SIZE = Long.BYTES + Double.BYTES + 1;
+    private static final byte ALERTED = 1;
+    private static final byte ALERTED_NOW = 2;
+
+    private long count;
+    private double sum;
+    private byte flags;
+
+    public AccountVelocity() {
+    }
+
+    private AccountVelocity(long count, double sum, byte flags) {
+        this.count = count;
+        this.sum = sum;
+        this.flags = flags;
+    }
+
+    public AccountVelocity add(double amount, long maxCount, double maxAmount) {
+        count++;
+        sum += amount;
+        boolean exceeded = count >= maxCount || sum >= maxAmount;
+        boolean wasAlerted = (flags & ALERTED) != 0;
+        flags = (byte) (exceeded || wasAlerted ? ALERTED : 0);
+        if (exceeded && !wasAlerted) {
+            flags |= ALERTED_NOW;
+        }
+        return this;
+    }
+
+    public long getCount() { return count; }
+    public double getSum() { return sum; }
+    public boolean isAlertedNow() { return (flags & ALERTED_NOW) != 0; }
+
+    public static final class AccountVelocitySerde implements Serde<AccountVelocity> {
+        @Override
+        public Serializer<AccountVelocity> serializer() {
+            return (topic, v) -> v == null ? null
+                    : ByteBuffer.allocate(SIZE).putLong(v.count).putDouble(v.sum).put(v.flags).array();
+        }
+
+        @Override
+        public Deserializer<AccountVelocity> deserializer() {
+            return (topic, data) -> {
+                if (data == null) {
+                    return null;
+                }
+                ByteBuffer buf = ByteBuffer.wrap(data);
+                return new AccountVelocity(buf.getLong(), buf.getDouble(), buf.get());
+            };
+        }
+    }
+}
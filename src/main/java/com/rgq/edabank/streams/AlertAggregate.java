@@ -0,0 +1,112 @@
+package com.rgq.edabank.streams;
+
+import org.apache.kafka.common.serialization.Deserializer;
+import org.apache.kafka.common.serialization.Serde;
+import org.apache.kafka.common.serialization.Serializer;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Alertas repetidas de una cuenta y tipo dentro de la ventana de AlertSuppression:
+ * número, primera y última aparición, importe máximo, el "type" de origen de la última y,
+ * si las alertas venían enriquecidas, el último perfil de cuenta ("account").
+ */
+public final class AlertAggregate {
+
+    private final long firstSeen;
+    private long lastSeen;
+    private long count;
+    private double maxAmount;
+    private String sourceType;
+    private String accountProfile;
+
+    public AlertAggregate(long firstSeen, double amount, String sourceType, String accountProfile) {
+        this(firstSeen, firstSeen, 1, amount, sourceType, accountProfile);
+    }
+
+    private AlertAggregate(long firstSeen, long lastSeen, long count, double maxAmount, String sourceType, String accountProfile) {
+        this.firstSeen = firstSeen;
+        this.lastSeen = lastSeen;
+        this.count = count;
+        this.maxAmount = maxAmount;
+        this.sourceType = sourceType;
+        this.accountProfile = accountProfile;
+    }
+
+    public void add(long ts, double amount, String type, String profile) {
+        count++;
+        lastSeen = Math.max(lastSeen, ts);
+        maxAmount = Math.max(maxAmount, amount);
+        sourceType = type;
+        if (profile != null) {
+            accountProfile = profile;
+        }
+    }
+
+    public long getFirstSeen() { return firstSeen; }
+    public long getLastSeen() { return lastSeen; }
+    public long getCount() { return count; }
+    public double getMaxAmount() { return maxAmount; }
+    public String getSourceType() { return sourceType; }
+    public String getAccountProfile() { return accountProfile; }
+
+    public static final class AlertAggregateSerde implements Serde<AlertAggregate> {
+        @Override
+        public Serializer<AlertAggregate> serializer() {
+            return (topic, a) -> {
+                if (a == null) {
+                    return null;
+                }
+                byte[] type = bytes(a.sourceType);
+                byte[] profile = bytes(a.accountProfile);
+                ByteBuffer buf = ByteBuffer.allocate(3 * Long.BYTES + Double.BYTES + 2 * Integer.BYTES
+                        + (type == null ? 0 : type.length) + (profile == null ? 0 : profile.length));
+                buf.putLong(a.firstSeen).putLong(a.lastSeen).putLong(a.count).putDouble(a.maxAmount);
+                put(buf, type);
+                put(buf, profile);
+                return buf.array();
+            };
+        }
+
+        @Override
+        public Deserializer<AlertAggregate> deserializer() {
+            return (topic, data) -> {
+                if (data == null) {
+                    return null;
+                }
+                ByteBuffer buf = ByteBuffer.wrap(data);
+                long first = buf.getLong();
+                long last = buf.getLong();
+                long count = buf.getLong();
+                double max = buf.getDouble();
+                String type = string(buf);
+                String profile = string(buf);
+                return new AlertAggregate(first, last, count, max, type, profile);
+            };
+        }
+
+        private static byte[] bytes(String s) {
+            return s == null ? null : s.getBytes(StandardCharsets.UTF_8);
+        }
+
+        // Longitud -1 = null
+        private static void put(ByteBuffer buf, byte[] bytes) {
+            if (bytes == null) {
+                buf.putInt(-1);
+            } else {
+                buf.putInt(bytes.length).put(bytes);
+            }
+        }
+
+        private static String string(ByteBuffer buf) {
+            int len = buf.getInt();
+            if (len < 0) {
+                return null;
+            }
+            String s = new String(buf.array(), buf.position(), len, StandardCharsets.UTF_8);
+            buf.position(buf.position() + len);
+            return s;
+        }
+    }
+}
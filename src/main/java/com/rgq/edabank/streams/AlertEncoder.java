@@ -0,0 +1,242 @@
+package com.rgq.edabank.streams;
+
+import java.util.List;
+
+/**
+ * Codificador de alertas para alerts.suspect. Escribe el JSON sobre un StringBuilder reservado por
+ * hilo de Streams, de modo que por alerta solo se crea el String final. El formato es el mismo que
+ * consume AlertsConsumer: {"alert":"threshold_exceeded","type":...,"amount":...,"threshold":...}.
+ * Los importes y estadísticos NaN o infinitos se escriben como null: JSON no admite esos literales.
+ */
+public final class AlertEncoder {
+
+    private static final int INITIAL_CAPACITY = 256;
+    private static final int MAX_RETAINED_CAPACITY = 16 * 1024;
+
+    private static final ThreadLocal<StringBuilder> BUFFER = ThreadLocal.withInitial(() -> new StringBuilder(INITIAL_CAPACITY));
+
+    private AlertEncoder() {
+    }
+
+    /** Umbral superado; "rules" lista las reglas de fraude que disparó el mismo evento, si alguna. */
+    public static String thresholdExceeded(FinancialEvent event, double threshold, List<String> rules) {
+        StringBuilder sb = buffer();
+        sb.append("{\"alert\":\"threshold_exceeded\",\"type\":");
+        appendString(sb, event.getType());
+        sb.append(",\"amount\":");
+        appendNumber(sb, event.getAmount());
+        sb.append(",\"threshold\":");
+        appendNumber(sb, threshold);
+        if (!rules.isEmpty()) {
+            appendRules(sb, rules);
+        }
+        return sb.append('}').toString();
+    }
+
+    /**
+     * Alerta producida por las reglas de fraude: {"alert":"rule_fired","rule":...,"id":...,"amount":...,"message":...}
+     * con la primera regla disparada; si el evento disparó más, "rules" las lista todas.
+     */
+    public static String ruleFired(String rule, String eventId, double amount, String message, List<String> rules) {
+        StringBuilder sb = buffer();
+        sb.append("{\"alert\":\"rule_fired\",\"rule\":");
+        appendString(sb, rule);
+        sb.append(",\"id\":");
+        appendString(sb, eventId);
+        sb.append(",\"amount\":");
+        appendNumber(sb, amount);
+        sb.append(",\"message\":");
+        appendString(sb, message);
+        if (rules.size() > 1) {
+            appendRules(sb, rules);
+        }
+        return sb.append('}').toString();
+    }
+
+    private static void appendRules(StringBuilder sb, List<String> rules) {
+        sb.append(",\"rules\":[");
+        for (int i = 0; i < rules.size(); i++) {
+            if (i > 0) {
+                sb.append(',');
+            }
+            appendString(sb, rules.get(i));
+        }
+        sb.append(']');
+    }
+
+    /** Ráfaga por cuenta: {"alert":"velocity_exceeded","accountId":...,"count":...,"amount":...,"windowStart":...,"windowEnd":...}. */
+    public static String velocityExceeded(String accountId, long count, double amount, long windowStart, long windowEnd) {
+        StringBuilder sb = buffer();
+        sb.append("{\"alert\":\"velocity_exceeded\",\"type\":\"velocity\",\"accountId\":");
+        appendString(sb, accountId);
+        sb.append(",\"count\":").append(count).append(",\"amount\":");
+        appendNumber(sb, amount);
+        sb.append(",\"windowStart\":").append(windowStart)
+                .append(",\"windowEnd\":").append(windowEnd);
+        return sb.append('}').toString();
+    }
+
+    /** Importe atípico para la cuenta: {"alert":"anomaly_score","type":...,"accountId":...,"amount":...,"zScore":...,"mean":...,"stdDev":...}. */
+    public static String anomalyScore(FinancialEvent event, double zScore, double mean, double stdDev) {
+        StringBuilder sb = buffer();
+        sb.append("{\"alert\":\"anomaly_score\",\"type\":");
+        appendString(sb, event.getType());
+        sb.append(",\"accountId\":");
+        appendString(sb, event.getAccountId());
+        sb.append(",\"amount\":");
+        appendNumber(sb, event.getAmount());
+        sb.append(",\"zScore\":");
+        appendNumber(sb, zScore);
+        sb.append(",\"mean\":");
+        appendNumber(sb, mean);
+        sb.append(",\"stdDev\":");
+        appendNumber(sb, stdDev);
+        return sb.append('}').toString();
+    }
+
+    /** Fan-in/fan-out: {"alert":"transfer_fan_in|transfer_fan_out","type":"transfer_graph","accountId":...,"count":...,"windowMs":...}. */
+    public static String transferFan(String alert, String accountId, int count, long windowMs) {
+        StringBuilder sb = buffer();
+        sb.append("{\"alert\":");
+        appendString(sb, alert);
+        sb.append(",\"type\":\"transfer_graph\",\"accountId\":");
+        appendString(sb, accountId);
+        sb.append(",\"count\":").append(count).append(",\"windowMs\":").append(windowMs);
+        return sb.append('}').toString();
+    }
+
+    /** Ciclo a -> b -> c -> a: {"alert":"transfer_cycle","type":"transfer_graph","accountId":a,"accounts":[a,b,c]}. */
+    public static String transferCycle(String a, String b, String c) {
+        StringBuilder sb = buffer();
+        sb.append("{\"alert\":\"transfer_cycle\",\"type\":\"transfer_graph\",\"accountId\":");
+        appendString(sb, a);
+        sb.append(",\"accounts\":[");
+        appendString(sb, a);
+        sb.append(',');
+        appendString(sb, b);
+        sb.append(',');
+        appendString(sb, c);
+        return sb.append("]}").toString();
+    }
+
+    /**
+     * Resumen de alertas repetidas de AlertSuppression: mismo "alert" y "type" que las originales más
+     * {"aggregated":true,"accountId":...,"count":...,"amount":max,"maxAmount":max,"firstSeen":...,"lastSeen":...}.
+     */
+    public static String aggregated(String alert, String sourceType, String accountId, long count, double maxAmount,
+                                    long firstSeen, long lastSeen, String accountProfile) {
+        StringBuilder sb = buffer();
+        sb.append("{\"alert\":");
+        appendString(sb, alert);
+        sb.append(",\"type\":");
+        appendString(sb, sourceType);
+        sb.append(",\"aggregated\":true,\"accountId\":");
+        appendString(sb, accountId);
+        sb.append(",\"count\":").append(count).append(",\"amount\":");
+        appendNumber(sb, maxAmount);
+        sb.append(",\"maxAmount\":");
+        appendNumber(sb, maxAmount);
+        sb.append(",\"firstSeen\":").append(firstSeen)
+                .append(",\"lastSeen\":").append(lastSeen);
+        if (accountProfile != null) {
+            sb.append(",\"account\":").append(accountProfile);
+        }
+        return sb.append('}').toString();
+    }
+
+    /** Añade a la alerta el perfil de su cuenta (accountProfile) como "account":{...}. */
+    public static String withAccount(String alert, String accountProfile) {
+        int end = alert.lastIndexOf('}');
+        if (end < 0) {
+            return alert;
+        }
+        StringBuilder sb = buffer();
+        sb.append(alert, 0, end);
+        if (alert.lastIndexOf(':', end) >= 0) {
+            sb.append(',');
+        }
+        sb.append("\"account\":").append(accountProfile);
+        return sb.append(alert, end, alert.length()).toString();
+    }
+
+    /**
+     * Perfil de cuenta publicado en pos.customers.by-account: {"id":...,"customerId":...,"firstName":...,"lastName":...,"businessId":...}.
+     * El email y el teléfono del cliente no se copian: las alertas se guardan en pos.alerts y circulan por alerts.suspect.
+     */
+    static String accountProfile(String accountId, String customerId, String firstName, String lastName, String businessId) {
+        StringBuilder sb = buffer();
+        sb.append("{\"id\":");
+        appendString(sb, accountId);
+        sb.append(",\"customerId\":");
+        appendString(sb, customerId);
+        sb.append(",\"firstName\":");
+        appendString(sb, firstName);
+        sb.append(",\"lastName\":");
+        appendString(sb, lastName);
+        sb.append(",\"businessId\":");
+        appendString(sb, businessId);
+        return sb.append('}').toString();
+    }
+
+    static String event(FinancialEvent event) {
+        StringBuilder sb = buffer();
+        sb.append("{\"id\":");
+        appendString(sb, event.getId());
+        sb.append(",\"type\":");
+        appendString(sb, event.getType());
+        sb.append(",\"amount\":");
+        appendNumber(sb, event.getAmount());
+        sb.append(",\"accountId\":");
+        appendString(sb, event.getAccountId());
+        sb.append(",\"currency\":");
+        appendString(sb, event.getCurrency());
+        sb.append(",\"to\":");
+        appendString(sb, event.getCounterpartyId());
+        return sb.append('}').toString();
+    }
+
+    private static StringBuilder buffer() {
+        StringBuilder sb = BUFFER.get();
+        // Un tipo anómalamente largo no debe dejar retenido un buffer grande en el hilo
+        if (sb.capacity() > MAX_RETAINED_CAPACITY) {
+            sb = new StringBuilder(INITIAL_CAPACITY);
+            BUFFER.set(sb);
+        }
+        sb.setLength(0);
+        return sb;
+    }
+
+    static void appendNumber(StringBuilder sb, double value) {
+        if (Double.isFinite(value)) {
+            sb.append(value);
+        } else {
+            sb.append("null");
+        }
+    }
+
+    static void appendString(StringBuilder sb, String value) {
+        if (value == null) {
+            sb.append("null");
+            return;
+        }
+        sb.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"' -> sb.append("\\\"");
+                case '\\' -> sb.append("\\\\");
+                case '\n' -> sb.append("\\n");
+                case '\r' -> sb.append("\\r");
+                case '\t' -> sb.append("\\t");
+                default -> {
+                    if (c < 0x20) {
+                        sb.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        sb.append(c);
+                    }
+                }
+            }
+        }
+        sb.append('"');
+    }
+}
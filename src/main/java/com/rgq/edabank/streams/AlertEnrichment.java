@@ -0,0 +1,58 @@
+package com.rgq.edabank.streams;
+
+import org.apache.kafka.common.serialization.Serdes;
+import org.apache.kafka.common.utils.Bytes;
+import org.apache.kafka.streams.StreamsBuilder;
+import org.apache.kafka.streams.kstream.Consumed;
+import org.apache.kafka.streams.kstream.Joined;
+import org.apache.kafka.streams.kstream.KStream;
+import org.apache.kafka.streams.kstream.KTable;
+import org.apache.kafka.streams.kstream.Materialized;
+import org.apache.kafka.streams.state.KeyValueStore;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Enriquecimiento de alertas con el perfil de la cuenta y su cliente, para que analistas y
+ * consumidores no consulten pos.customers/pos.payments por cada alerta. CustomerProfileSync publica
+ * el perfil en el topic compactado pos.customers.by-account con la cuenta como clave; la topología
+ * lo lee como KTable y las alertas, ya repartidas por cuenta, se cruzan con ella en la misma tarea
+ * (co-particionado: mismo número de particiones y particionador por defecto en ambos topics).
+ * Si la cuenta aún no tiene perfil la alerta sigue sin enriquecer.
+ */
+@Component
+public class AlertEnrichment {
+
+    public static final String PROFILES_TOPIC = "pos.customers.by-account";
+    public static final String STORE = "account-profiles-store";
+
+    @Value("${app.alerts.enrichment.enabled:true}")
+    private boolean enabled;
+
+    // Debe coincidir con las particiones de alerts-by-account; con app.streams.partitions > 0 se usa ese valor
+    @Value("${app.alerts.enrichment.partitions:1}")
+    private int partitions;
+
+    @Value("${app.streams.partitions:0}")
+    private int streamsPartitions;
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public int getPartitions() {
+        return streamsPartitions > 0 ? streamsPartitions : partitions;
+    }
+
+    public KStream<String, String> enrich(StreamsBuilder builder, KStream<String, String> alertsByAccount) {
+        KTable<String, String> profiles = builder.table(PROFILES_TOPIC,
+                Consumed.with(Serdes.String(), Serdes.String()).withName("enrichment-profiles"),
+                Materialized.<String, String, KeyValueStore<Bytes, byte[]>>as(STORE)
+                        .withKeySerde(Serdes.String())
+                        .withValueSerde(Serdes.String()));
+        return alertsByAccount.leftJoin(profiles,
+                (alert, profile) -> profile == null ? alert : AlertEncoder.withAccount(alert, profile),
+                Joined.<String, String, String>with(Serdes.String(), Serdes.String(), Serdes.String())
+                        .withName("enrichment-join"));
+    }
+}
@@ -0,0 +1,205 @@
+package com.rgq.edabank.streams;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.apache.kafka.common.serialization.Serdes;
+import org.apache.kafka.streams.KeyValue;
+import org.apache.kafka.streams.StreamsBuilder;
+import org.apache.kafka.streams.kstream.KStream;
+import org.apache.kafka.streams.kstream.Named;
+import org.apache.kafka.streams.processor.PunctuationType;
+import org.apache.kafka.streams.processor.api.Processor;
+import org.apache.kafka.streams.processor.api.ProcessorContext;
+import org.apache.kafka.streams.processor.api.Record;
+import org.apache.kafka.streams.state.KeyValueIterator;
+import org.apache.kafka.streams.state.KeyValueStore;
+import org.apache.kafka.streams.state.Stores;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Supresión de alertas repetidas antes de alerts.suspect. Una cuenta comprometida puede disparar
+ * cientos de threshold_exceeded idénticos y AlertsConsumer insertaría cada uno en pos.alerts.
+ * Por cuenta y tipo de alerta ("alert") se deja pasar la primera de cada ventana sin retraso y
+ * se acumulan las siguientes; al cerrar la ventana, si hubo repeticiones, se emite un único resumen
+ * con el total, la primera y última aparición y el importe máximo. La entrada debe llegar clavada
+ * por cuenta y repartida por ella (TopologyConfig reparte antes de esta etapa).
+ * <p>
+ * Todo se mide en tiempo de evento: las ventanas empiezan en el timestamp de la primera alerta y se
+ * cierran con un punctuator de STREAM_TIME, así que un resumen sale cuando llega a la tarea alguna
+ * alerta posterior al cierre, no antes. Las ventanas abiertas se indexan por hora de cierre en un
+ * segundo store y el flush solo recorre las ya vencidas.
+ */
+@Component
+public class AlertSuppression {
+    private static final Logger log = LoggerFactory.getLogger(AlertSuppression.class);
+
+    public static final String STORE = "alert-suppression-store";
+    public static final String EXPIRY_STORE = "alert-suppression-expiry-store";
+
+    private static final JsonFactory JSON = new JsonFactory();
+
+    private final Counter forwarded;
+    private final Counter suppressed;
+    private final Counter summaries;
+
+    @Value("${app.alerts.suppression.enabled:true}")
+    private boolean enabled;
+
+    @Value("${app.alerts.suppression.window-ms:300000}")
+    private long windowMs;
+
+    // Cada cuánto (en tiempo de stream) se revisan las ventanas cerradas
+    @Value("${app.alerts.suppression.flush-interval-ms:10000}")
+    private long flushIntervalMs;
+
+    public AlertSuppression(MeterRegistry registry) {
+        this.forwarded = Counter.builder("streams.alerts.suppression").tag("result", "forwarded")
+                .description("Alerts seen by the Streams suppression stage").register(registry);
+        this.suppressed = Counter.builder("streams.alerts.suppression").tag("result", "suppressed")
+                .description("Alerts seen by the Streams suppression stage").register(registry);
+        this.summaries = Counter.builder("streams.alerts.suppression").tag("result", "summary")
+                .description("Alerts seen by the Streams suppression stage").register(registry);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public KStream<String, String> suppress(StreamsBuilder builder, KStream<String, String> alertsByAccount) {
+        builder.addStateStore(Stores.keyValueStoreBuilder(
+                Stores.persistentKeyValueStore(STORE), Serdes.String(), new AlertAggregate.AlertAggregateSerde()));
+        builder.addStateStore(Stores.keyValueStoreBuilder(
+                Stores.persistentKeyValueStore(EXPIRY_STORE), Serdes.String(), Serdes.String()));
+        return alertsByAccount.process(SuppressionProcessor::new, Named.as("alert-suppression"), STORE, EXPIRY_STORE);
+    }
+
+    /** Campos de la alerta que deciden la agrupación ("alert", "type", "amount") y el perfil "account" si lo trae. */
+    private record AlertFields(String alert, String type, double amount, String accountProfile) {
+    }
+
+    private static AlertFields parse(String json) {
+        String alert = null;
+        String type = null;
+        double amount = 0.0;
+        String accountProfile = null;
+        try (JsonParser p = JSON.createParser(json)) {
+            if (p.nextToken() != JsonToken.START_OBJECT) {
+                return null;
+            }
+            while (p.nextToken() == JsonToken.FIELD_NAME) {
+                String field = p.currentName();
+                JsonToken value = p.nextToken();
+                if ("account".equals(field) && value == JsonToken.START_OBJECT) {
+                    // Se copia el objeto tal cual para el resumen, sin decodificarlo
+                    int start = (int) p.currentTokenLocation().getCharOffset();
+                    p.skipChildren();
+                    accountProfile = json.substring(start, (int) p.currentTokenLocation().getCharOffset() + 1);
+                    continue;
+                }
+                if ("alert".equals(field)) {
+                    alert = p.getValueAsString();
+                } else if ("type".equals(field)) {
+                    type = p.getValueAsString();
+                } else if ("amount".equals(field)) {
+                    amount = p.getValueAsDouble(0.0);
+                }
+                p.skipChildren();
+            }
+        } catch (IOException e) {
+            log.warn("Invalid alert payload: {}", e.getMessage());
+            return null;
+        }
+        return alert == null ? null : new AlertFields(alert, type, amount, accountProfile);
+    }
+
+    // Hora de cierre con ancho fijo delante de la clave: el orden del store es el orden de cierre
+    private static String expiryKey(long closeAt, String key) {
+        return String.format("%019d", closeAt) + key;
+    }
+
+    private final class SuppressionProcessor implements Processor<String, String, String, String> {
+        private ProcessorContext<String, String> context;
+        private KeyValueStore<String, AlertAggregate> store;
+        // Ventanas abiertas por hora de cierre (expiryKey -> clave de store)
+        private KeyValueStore<String, String> expiry;
+
+        @Override
+        public void init(ProcessorContext<String, String> context) {
+            this.context = context;
+            this.store = context.getStateStore(STORE);
+            this.expiry = context.getStateStore(EXPIRY_STORE);
+            context.schedule(Duration.ofMillis(flushIntervalMs), PunctuationType.STREAM_TIME, this::flush);
+        }
+
+        @Override
+        public void process(Record<String, String> record) {
+            AlertFields fields = record.key() == null || record.value() == null ? null : parse(record.value());
+            if (fields == null) {
+                // Sin cuenta o sin tipo no hay con qué agrupar: se publica tal cual
+                forwarded.increment();
+                context.forward(record);
+                return;
+            }
+            String key = record.key() + '\u0000' + fields.alert();
+            long ts = record.timestamp();
+            AlertAggregate current = store.get(key);
+            if (current != null && ts - current.getFirstSeen() < windowMs) {
+                current.add(ts, fields.amount(), fields.type(), fields.accountProfile());
+                store.put(key, current);
+                suppressed.increment();
+                return;
+            }
+            if (current != null) {
+                expiry.delete(expiryKey(current.getFirstSeen() + windowMs, key));
+                emitSummary(key, current, ts);
+            }
+            store.put(key, new AlertAggregate(ts, fields.amount(), fields.type(), fields.accountProfile()));
+            expiry.put(expiryKey(ts + windowMs, key), key);
+            forwarded.increment();
+            context.forward(record);
+        }
+
+        // Cierra las ventanas vencidas; solo las que tuvieron repeticiones generan resumen
+        private void flush(long now) {
+            List<KeyValue<String, String>> expired = new ArrayList<>();
+            // El índice está ordenado por cierre: el rango solo contiene las ventanas con cierre <= now
+            try (KeyValueIterator<String, String> it = expiry.range(expiryKey(0L, ""), expiryKey(now + 1, ""))) {
+                while (it.hasNext()) {
+                    expired.add(it.next());
+                }
+            }
+            for (KeyValue<String, String> entry : expired) {
+                expiry.delete(entry.key);
+                AlertAggregate aggregate = store.get(entry.value);
+                if (aggregate != null && aggregate.getFirstSeen() + windowMs <= now) {
+                    store.delete(entry.value);
+                    emitSummary(entry.value, aggregate, now);
+                }
+            }
+        }
+
+        private void emitSummary(String key, AlertAggregate aggregate, long ts) {
+            if (aggregate.getCount() < 2) {
+                return;
+            }
+            int sep = key.indexOf('\u0000');
+            String account = key.substring(0, sep);
+            String alert = key.substring(sep + 1);
+            summaries.increment();
+            context.forward(new Record<>(account, AlertEncoder.aggregated(alert, aggregate.getSourceType(), account,
+                    aggregate.getCount(), aggregate.getMaxAmount(), aggregate.getFirstSeen(), aggregate.getLastSeen(),
+                    aggregate.getAccountProfile()), ts));
+        }
+    }
+}
@@ -38,7 +38,8 @@ public class AlertsConsumer {
             
             com.rgq.edabank.model.Alert a = new com.rgq.edabank.model.Alert();
             a.setEventId(null);
-            a.setAlertType("threshold_exceeded");
+            // threshold_exceeded, velocity_exceeded, rule_fired...
+            a.setAlertType(node.has("alert") ? node.get("alert").asText("threshold_exceeded") : "threshold_exceeded");
             a.setSourceType(type);
             a.setAmount(amount);
             a.setPayload(payload);
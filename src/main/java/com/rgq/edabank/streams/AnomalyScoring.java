@@ -0,0 +1,77 @@
+package com.rgq.edabank.streams;
+
+import org.apache.kafka.common.serialization.Serdes;
+import org.apache.kafka.streams.StreamsBuilder;
+import org.apache.kafka.streams.kstream.KStream;
+import org.apache.kafka.streams.kstream.Named;
+import org.apache.kafka.streams.processor.api.Processor;
+import org.apache.kafka.streams.processor.api.ProcessorContext;
+import org.apache.kafka.streams.processor.api.Record;
+import org.apache.kafka.streams.state.KeyValueStore;
+import org.apache.kafka.streams.state.Stores;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Puntuación estadística por cuenta: mantiene media y varianza móviles del importe (Welford) en
+ * un store RocksDB y puntúa cada movimiento por su z-score frente al histórico de su cuenta antes
+ * de incorporarlo. Emite anomaly_score cuando z supera el límite y la cuenta tiene historial suficiente.
+ */
+@Component
+public class AnomalyScoring {
+
+    public static final String STORE = "account-stats-store";
+
+    @Value("${app.alerts.anomaly.enabled:true}")
+    private boolean enabled;
+
+    @Value("${app.alerts.anomaly.z-threshold:4.0}")
+    private double zThreshold;
+
+    @Value("${app.alerts.anomaly.min-samples:20}")
+    private long minSamples;
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /** byAccount debe estar clavado y particionado por cuenta de origen. */
+    public KStream<String, String> alerts(StreamsBuilder builder, KStream<String, FinancialEvent> byAccount) {
+        builder.addStateStore(Stores.keyValueStoreBuilder(
+                Stores.persistentKeyValueStore(STORE), Serdes.String(), new AccountStats.AccountStatsSerde()));
+        return byAccount.process(ScoringProcessor::new, Named.as("anomaly-scoring"), STORE);
+    }
+
+    private final class ScoringProcessor implements Processor<String, FinancialEvent, String, String> {
+        private ProcessorContext<String, String> context;
+        private KeyValueStore<String, AccountStats> store;
+
+        @Override
+        public void init(ProcessorContext<String, String> context) {
+            this.context = context;
+            this.store = context.getStateStore(STORE);
+        }
+
+        @Override
+        public void process(Record<String, FinancialEvent> record) {
+            FinancialEvent event = record.value();
+            if (record.key() == null || event == null) {
+                return;
+            }
+            AccountStats stats = store.get(record.key());
+            if (stats == null) {
+                stats = new AccountStats();
+            }
+            double stdDev = stats.getStdDev();
+            if (stats.getCount() >= minSamples && stdDev > 0) {
+                double z = (event.getAmount() - stats.getMean()) / stdDev;
+                if (z >= zThreshold) {
+                    context.forward(record.withValue(
+                            AlertEncoder.anomalyScore(event, z, stats.getMean(), stdDev)));
+                }
+            }
+            stats.add(event.getAmount());
+            store.put(record.key(), stats);
+        }
+    }
+}
@@ -0,0 +1,52 @@
+package com.rgq.edabank.streams;
+
+import org.apache.kafka.streams.KeyValue;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * Publica el perfil de cada cuenta (pos.customer_accounts + pos.customers) en el topic compactado
+ * pos.customers.by-account, clave account_id, del que AlertEnrichment construye su KTable. Una cuenta
+ * se republica cuando cambia su vínculo o su cliente; cuenta sin cliente = tombstone (los triggers de
+ * V17 convierten el borrado de un vínculo o de un cliente en customer_id = NULL).
+ * pos.customer_accounts no la escribe la aplicación: se carga desde el sistema de cuentas (ver README).
+ */
+@Component
+@ConditionalOnProperty(name = "app.alerts.enrichment.sync.enabled", havingValue = "true", matchIfMissing = true)
+public class CustomerProfileSync extends CompactedTableSync {
+
+    private static final String PROFILES =
+            "SELECT ca.account_id, c.id, c.first_name, c.last_name, c.business_id"
+            + " FROM pos.customer_accounts ca LEFT JOIN pos.customers c ON c.id = ca.customer_id";
+
+    public CustomerProfileSync(JdbcTemplate jdbc, KafkaTemplate<String, String> kafkaTemplate) {
+        super(jdbc, kafkaTemplate, AlertEnrichment.PROFILES_TOPIC);
+    }
+
+    @Scheduled(initialDelayString = "${app.alerts.enrichment.sync.initial-delay-ms:5000}",
+            fixedDelayString = "${app.alerts.enrichment.sync.interval-ms:30000}")
+    public void sync() {
+        publishChanges();
+    }
+
+    @Override
+    protected List<KeyValue<String, String>> changedSince(JdbcTemplate jdbc, String sinceXid) {
+        String sql = PROFILES;
+        Object[] args = {};
+        if (sinceXid != null) {
+            sql += " WHERE ca.change_xid >= ?::xid8 OR c.change_xid >= ?::xid8";
+            args = new Object[]{sinceXid, sinceXid};
+        }
+        return jdbc.query(sql, (rs, i) -> {
+            String accountId = rs.getString(1);
+            String customerId = rs.getString(2);
+            return KeyValue.pair(accountId, customerId == null ? null : AlertEncoder.accountProfile(accountId, customerId,
+                    rs.getString(3), rs.getString(4), rs.getString(5)));
+        }, args);
+    }
+}
@@ -0,0 +1,99 @@
+package com.rgq.edabank.streams;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import org.apache.kafka.common.serialization.Deserializer;
+import org.apache.kafka.common.serialization.Serde;
+import org.apache.kafka.common.serialization.Serializer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Serde del topic CDC dbz-outbox.pos.outbox (conector de Debezium sin EventRouter). Decodifica el
+ * sobre (con o sin "schema") en una sola pasada con el parser de streaming y convierte after.payload
+ * en un FinancialEvent con el mismo lector que FinancialEventSerde, tanto si la columna llega como
+ * texto JSON como si llega como objeto embebido. Los tombstones, los registros sin after y las
+ * operaciones distintas de create ("c") se devuelven como null para que ingress-valid los descarte.
+ */
+public class DebeziumOutboxSerde implements Serde<FinancialEvent> {
+    private static final Logger log = LoggerFactory.getLogger(DebeziumOutboxSerde.class);
+
+    private final Deserializer<FinancialEvent> deserializer = (topic, data) -> data == null || data.length == 0 ? null : decode(data);
+    private final Serializer<FinancialEvent> serializer = (topic, event) -> event == null ? null
+            : AlertEncoder.event(event).getBytes(StandardCharsets.UTF_8);
+
+    @Override
+    public Serializer<FinancialEvent> serializer() {
+        return serializer;
+    }
+
+    @Override
+    public Deserializer<FinancialEvent> deserializer() {
+        return deserializer;
+    }
+
+    static FinancialEvent decode(byte[] data) {
+        try (JsonParser p = FinancialEventSerde.JSON.createParser(data)) {
+            if (p.nextToken() != JsonToken.START_OBJECT) {
+                return null;
+            }
+            return readEnvelope(p);
+        } catch (Exception e) {
+            log.warn("Invalid Debezium envelope: {}", e.getMessage());
+            return null;
+        }
+    }
+
+    // El parser está en el START_OBJECT del sobre (o del objeto raíz con "schema" y "payload")
+    private static FinancialEvent readEnvelope(JsonParser p) throws IOException {
+        FinancialEvent after = null;
+        String op = null;
+        while (p.nextToken() == JsonToken.FIELD_NAME) {
+            String field = p.currentName();
+            JsonToken value = p.nextToken();
+            if ("payload".equals(field) && value == JsonToken.START_OBJECT) {
+                // JsonConverter con schemas.enable=true: el sobre real va dentro de "payload"
+                return readEnvelope(p);
+            } else if ("after".equals(field) && value == JsonToken.START_OBJECT) {
+                after = readRow(p);
+            } else if ("op".equals(field)) {
+                op = p.getValueAsString();
+                // "op" va detrás de "after" en Debezium; si viniera antes se corta en cuanto no es un create
+                if (!"c".equals(op)) {
+                    return null;
+                }
+            } else {
+                p.skipChildren();
+            }
+        }
+        return "c".equals(op) ? after : null;
+    }
+
+    // Fila de pos.outbox: solo interesa la columna payload
+    private static FinancialEvent readRow(JsonParser p) throws IOException {
+        FinancialEvent event = null;
+        while (p.nextToken() == JsonToken.FIELD_NAME) {
+            String field = p.currentName();
+            JsonToken value = p.nextToken();
+            if ("payload".equals(field)) {
+                if (value == JsonToken.START_OBJECT) {
+                    event = FinancialEventSerde.read(p, FinancialEventSerde.READ_TO_END);
+                    continue;
+                }
+                if (value == JsonToken.VALUE_STRING) {
+                    try (JsonParser nested = FinancialEventSerde.JSON.createParser(p.getText())) {
+                        if (nested.nextToken() == JsonToken.START_OBJECT) {
+                            event = FinancialEventSerde.read(nested, FinancialEventSerde.ALL_FIELDS);
+                        }
+                    }
+                    continue;
+                }
+            }
+            p.skipChildren();
+        }
+        return event;
+    }
+}
@@ -0,0 +1,96 @@
+package com.rgq.edabank.streams;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.apache.kafka.common.serialization.Serdes;
+import org.apache.kafka.streams.StreamsBuilder;
+import org.apache.kafka.streams.kstream.KStream;
+import org.apache.kafka.streams.kstream.Named;
+import org.apache.kafka.streams.processor.api.FixedKeyProcessor;
+import org.apache.kafka.streams.processor.api.FixedKeyProcessorContext;
+import org.apache.kafka.streams.processor.api.FixedKeyRecord;
+import org.apache.kafka.streams.state.Stores;
+import org.apache.kafka.streams.state.WindowStore;
+import org.apache.kafka.streams.state.WindowStoreIterator;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+/**
+ * Deduplicación en la cabecera de la topología. El outbox es at-least-once (reenvíos tras un
+ * fallo al marcar sent, reprocesos de Debezium), así que el mismo evento puede llegar varias veces.
+ * Se recuerda cada id de evento en un window store con la retención configurada y se descartan
+ * las repeticiones dentro de ese plazo. La clave del registro no sirve como identidad: el outbox usa
+ * el id del agregado (y en modo outbox-cdc la de la fila), que comparten eventos distintos; solo se
+ * usa para los registros que no se pudieron decodificar. Como todas las copias llevan la misma clave
+ * caen en la misma partición y no hace falta repartir.
+ */
+@Component
+public class EventDeduplicator {
+
+    public static final String STORE = "event-dedup-store";
+
+    private final Counter unique;
+    private final Counter duplicates;
+
+    @Value("${app.streams.dedup.enabled:true}")
+    private boolean enabled;
+
+    @Value("${app.streams.dedup.retention-ms:86400000}")
+    private long retentionMs;
+
+    public EventDeduplicator(MeterRegistry registry) {
+        this.unique = Counter.builder("streams.dedup.events").tag("result", "unique")
+                .description("Events seen by the Streams deduplication stage").register(registry);
+        this.duplicates = Counter.builder("streams.dedup.events").tag("result", "duplicate")
+                .description("Events seen by the Streams deduplication stage").register(registry);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public KStream<String, FinancialEvent> dedup(StreamsBuilder builder, KStream<String, FinancialEvent> events) {
+        Duration retention = Duration.ofMillis(retentionMs);
+        builder.addStateStore(Stores.windowStoreBuilder(
+                Stores.persistentWindowStore(STORE, retention, retention, false), Serdes.String(), Serdes.Long()));
+        return events.processValues(DedupProcessor::new, Named.as("event-dedup"), STORE);
+    }
+
+    private final class DedupProcessor implements FixedKeyProcessor<String, FinancialEvent, FinancialEvent> {
+        private FixedKeyProcessorContext<String, FinancialEvent> context;
+        private WindowStore<String, Long> seen;
+
+        @Override
+        public void init(FixedKeyProcessorContext<String, FinancialEvent> context) {
+            this.context = context;
+            this.seen = context.getStateStore(STORE);
+        }
+
+        @Override
+        public void process(FixedKeyRecord<String, FinancialEvent> record) {
+            FinancialEvent event = record.value();
+            String key = event != null && event.getId() != null ? event.getId() : record.key();
+            if (key == null) {
+                // Sin identidad no se puede deduplicar: se deja pasar (el filtro posterior descarta los null)
+                context.forward(record);
+                return;
+            }
+            // Pagos y transferencias pueden compartir id: se distingue por topic de origen
+            String id = context.recordMetadata().map(m -> m.topic() + ":" + key).orElse(key);
+            long ts = record.timestamp();
+            boolean duplicate;
+            try (WindowStoreIterator<Long> it = seen.fetch(id, ts - retentionMs, ts + retentionMs)) {
+                duplicate = it.hasNext();
+            }
+            if (duplicate) {
+                duplicates.increment();
+                return;
+            }
+            seen.put(id, ts, ts);
+            unique.increment();
+            context.forward(record);
+        }
+    }
+}
@@ -0,0 +1,38 @@
+package com.rgq.edabank.streams;
+
+/**
+ * Vista mínima de un evento de payments.events / transfers.events para la topología:
+ * solo los campos que usan los filtros, extraídos por FinancialEventSerde en una pasada.
+ * accountId es la cuenta que origina el movimiento (accountId del pago o from de la transferencia)
+ * y counterpartyId la de destino (to de la transferencia; null en pagos).
+ */
+public final class FinancialEvent {
+
+    private final String id;
+    private final String type;
+    private final double amount;
+    private final String accountId;
+    private final String currency;
+    private final String counterpartyId;
+
+    public FinancialEvent(String id, String type, double amount, String accountId, String currency, String counterpartyId) {
+        this.id = id;
+        this.type = type;
+        this.amount = amount;
+        this.accountId = accountId;
+        this.currency = currency;
+        this.counterpartyId = counterpartyId;
+    }
+
+    public String getId() { return id; }
+    public String getType() { return type; }
+    public double getAmount() { return amount; }
+    public String getAccountId() { return accountId; }
+    public String getCurrency() { return currency; }
+    public String getCounterpartyId() { return counterpartyId; }
+
+    @Override
+    public String toString() {
+        return "FinancialEvent{id=" + id + ", type=" + type + ", amount=" + amount + ", accountId=" + accountId + ", currency=" + currency + ", counterpartyId=" + counterpartyId + "}";
+    }
+}
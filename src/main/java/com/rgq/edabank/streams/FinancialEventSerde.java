@@ -0,0 +1,124 @@
+package com.rgq.edabank.streams;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import org.apache.kafka.common.serialization.Deserializer;
+import org.apache.kafka.common.serialization.Serde;
+import org.apache.kafka.common.serialization.Serializer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Serde de FinancialEvent. El deserializador recorre el JSON con el parser de streaming de Jackson
+ * en una sola pasada, sin construir un árbol JsonNode: lee id, type, amount, divisa y cuentas de
+ * origen y destino del objeto raíz, salta los subobjetos y termina en cuanto tiene todos los campos que
+ * el topic puede traer (en payments.events no hay cuenta de destino). Un payload inválido se registra
+ * y se devuelve como null para que el filtro lo descarte.
+ */
+public class FinancialEventSerde implements Serde<FinancialEvent> {
+    private static final Logger log = LoggerFactory.getLogger(FinancialEventSerde.class);
+
+    static final JsonFactory JSON = new JsonFactory();
+
+    // Campos que se extraen; el parseo termina en cuanto están todos
+    private static final int ID = 1;
+    private static final int TYPE = 2;
+    private static final int AMOUNT = 4;
+    private static final int ACCOUNT = 8;
+    private static final int CURRENCY = 16;
+    private static final int COUNTERPARTY = 32;
+    private static final int PAYMENT_FIELDS = ID | TYPE | AMOUNT | ACCOUNT | CURRENCY;
+    static final int ALL_FIELDS = PAYMENT_FIELDS | COUNTERPARTY;
+    // Ningún evento trae todos los bits: se lee hasta el cierre del objeto
+    static final int READ_TO_END = -1;
+
+    static final String PAYMENTS_TOPIC = "payments.events";
+
+    // Los pagos no llevan "to": esperar a COUNTERPARTY obligaría a recorrer siempre el payload entero
+    private final Deserializer<FinancialEvent> deserializer = (topic, data) -> data == null ? null
+            : decode(data, PAYMENTS_TOPIC.equals(topic) ? PAYMENT_FIELDS : ALL_FIELDS);
+    private final Serializer<FinancialEvent> serializer = (topic, event) -> event == null ? null
+            : AlertEncoder.event(event).getBytes(StandardCharsets.UTF_8);
+
+    @Override
+    public Serializer<FinancialEvent> serializer() {
+        return serializer;
+    }
+
+    @Override
+    public Deserializer<FinancialEvent> deserializer() {
+        return deserializer;
+    }
+
+    // Pagos: accountId/account_id; transferencias: from (cuenta de origen) y to (destino)
+    private static int fieldBit(String field) {
+        switch (field) {
+            case "id": return ID;
+            case "type": return TYPE;
+            case "amount": return AMOUNT;
+            case "currency": return CURRENCY;
+            case "accountId":
+            case "account_id":
+            case "from": return ACCOUNT;
+            case "to": return COUNTERPARTY;
+            default: return 0;
+        }
+    }
+
+    private static String text(JsonParser p, JsonToken value) throws IOException {
+        return value == JsonToken.VALUE_NULL ? null : p.getValueAsString();
+    }
+
+    static FinancialEvent decode(byte[] data) {
+        return decode(data, ALL_FIELDS);
+    }
+
+    static FinancialEvent decode(byte[] data, int required) {
+        try (JsonParser p = JSON.createParser(data)) {
+            if (p.nextToken() != JsonToken.START_OBJECT) {
+                throw new IllegalArgumentException("not a JSON object");
+            }
+            return read(p, required);
+        } catch (Exception e) {
+            log.warn("Invalid JSON payload: {}", new String(data, StandardCharsets.UTF_8));
+            return null;
+        }
+    }
+
+    /**
+     * Lee un evento desde el START_OBJECT ya consumido. Con READ_TO_END el parser queda en el
+     * END_OBJECT del evento, para quien lo lee embebido en otro documento (DebeziumOutboxSerde).
+     */
+    static FinancialEvent read(JsonParser p, int required) throws IOException {
+        String id = null;
+        String type = null;
+        double amount = 0.0;
+        String accountId = null;
+        String currency = null;
+        String counterpartyId = null;
+        int found = 0;
+        while ((found & required) != required && p.nextToken() == JsonToken.FIELD_NAME) {
+            String field = p.currentName();
+            JsonToken value = p.nextToken();
+            int bit = fieldBit(field);
+            if (bit != 0 && (found & bit) == 0) {
+                found |= bit;
+                switch (bit) {
+                    case ID -> id = text(p, value);
+                    case TYPE -> type = text(p, value);
+                    case AMOUNT -> amount = p.getValueAsDouble(0.0);
+                    case CURRENCY -> currency = text(p, value);
+                    case COUNTERPARTY -> counterpartyId = text(p, value);
+                    default -> accountId = text(p, value);
+                }
+            }
+            // No-op en escalares; en objetos/arrays salta hasta su cierre
+            p.skipChildren();
+        }
+        return new FinancialEvent(id, type != null ? type : "unknown", amount, accountId, currency, counterpartyId);
+    }
+}
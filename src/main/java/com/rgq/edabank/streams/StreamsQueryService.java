@@ -0,0 +1,135 @@
+package com.rgq.edabank.streams;
+
+import org.apache.kafka.common.serialization.Serdes;
+import org.apache.kafka.streams.KafkaStreams;
+import org.apache.kafka.streams.KeyQueryMetadata;
+import org.apache.kafka.streams.KeyValue;
+import org.apache.kafka.streams.StoreQueryParameters;
+import org.apache.kafka.streams.ThreadMetadata;
+import org.apache.kafka.streams.Topology;
+import org.apache.kafka.streams.errors.InvalidStateStoreException;
+import org.apache.kafka.streams.state.HostInfo;
+import org.apache.kafka.streams.state.QueryableStoreTypes;
+import org.apache.kafka.streams.state.ReadOnlyKeyValueStore;
+import org.apache.kafka.streams.state.ReadOnlyWindowStore;
+import org.apache.kafka.streams.state.WindowStoreIterator;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.kafka.config.StreamsBuilderFactoryBean;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Consultas interactivas sobre los stores de la topología. Cada clave vive en una sola instancia:
+ * ownerOf() la localiza con los metadatos de Streams (application.server) y, si es otra instancia,
+ * forward() reenvía la petición HTTP a esa instancia.
+ */
+@Service
+public class StreamsQueryService {
+
+    private final StreamsBuilderFactoryBean factory;
+    private final VelocityAggregation velocity;
+    private final HttpClient http = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(2)).build();
+
+    // host:port con el que esta instancia se anuncia al resto (vacío = instancia única)
+    @Value("${spring.kafka.streams.properties.application.server:}")
+    private String applicationServer;
+
+    @Value("${app.streams.query.forward-timeout-ms:5000}")
+    private long forwardTimeoutMs;
+
+    public StreamsQueryService(StreamsBuilderFactoryBean factory, VelocityAggregation velocity) {
+        this.factory = factory;
+        this.velocity = velocity;
+    }
+
+    /** Instancia que tiene la partición activa de la clave; null si es esta misma. */
+    public HostInfo remoteOwnerOf(String store, String key) {
+        KeyQueryMetadata metadata = streams().queryMetadataForKey(store, key, Serdes.String().serializer());
+        if (metadata == null || KeyQueryMetadata.NOT_AVAILABLE.equals(metadata)) {
+            throw new InvalidStateStoreException("metadata for store " + store + " not available yet");
+        }
+        HostInfo owner = metadata.activeHost();
+        if (applicationServer.isBlank() || owner.equals(HostInfo.buildFromEndpoint(applicationServer))) {
+            return null;
+        }
+        return owner;
+    }
+
+    /** Ventanas de velocidad de la cuenta con inicio en [from, to]. */
+    public List<Map<String, Object>> velocity(String accountId, Instant from, Instant to) {
+        ReadOnlyWindowStore<String, AccountVelocity> store = streams().store(StoreQueryParameters.fromNameAndType(
+                VelocityAggregation.STORE, QueryableStoreTypes.<String, AccountVelocity>windowStore()));
+        List<Map<String, Object>> windows = new ArrayList<>();
+        try (WindowStoreIterator<AccountVelocity> it = store.fetch(accountId, from, to)) {
+            while (it.hasNext()) {
+                KeyValue<Long, AccountVelocity> kv = it.next();
+                Map<String, Object> w = new LinkedHashMap<>();
+                w.put("windowStart", kv.key);
+                w.put("windowEnd", kv.key + velocity.getWindowMs());
+                w.put("count", kv.value.getCount());
+                w.put("amount", kv.value.getSum());
+                windows.add(w);
+            }
+        }
+        return windows;
+    }
+
+    /** Última alerta (JSON) emitida para la cuenta, o null. */
+    public String latestAlert(String accountId) {
+        ReadOnlyKeyValueStore<String, String> store = streams().store(StoreQueryParameters.fromNameAndType(
+                TopologyConfig.LATEST_ALERTS_STORE, QueryableStoreTypes.<String, String>keyValueStore()));
+        return store.get(accountId);
+    }
+
+    /** Descripción de la topología (subtopologías, procesadores con nombre, stores y topics internos). */
+    public String topology() {
+        Topology topology = factory.getTopology();
+        if (topology == null) {
+            throw new InvalidStateStoreException("Kafka Streams topology not built yet");
+        }
+        return topology.describe().toString();
+    }
+
+    /** Hilos de Streams de esta instancia con sus tareas activas y standby. */
+    public List<Map<String, Object>> threads() {
+        List<Map<String, Object>> out = new ArrayList<>();
+        for (ThreadMetadata thread : streams().metadataForLocalThreads()) {
+            Map<String, Object> row = new LinkedHashMap<>();
+            row.put("thread", thread.threadName());
+            row.put("state", thread.threadState());
+            row.put("activeTasks", thread.activeTasks().stream().map(t -> t.taskId().toString()).sorted().toList());
+            row.put("standbyTasks", thread.standbyTasks().stream().map(t -> t.taskId().toString()).sorted().toList());
+            out.add(row);
+        }
+        return out;
+    }
+
+    public HttpResponse<String> forward(HostInfo owner, String pathAndQuery, String authorization) throws IOException, InterruptedException {
+        HttpRequest.Builder request = HttpRequest.newBuilder(URI.create("http://" + owner.host() + ":" + owner.port() + pathAndQuery))
+                .timeout(Duration.ofMillis(forwardTimeoutMs))
+                .GET();
+        if (authorization != null) {
+            request.header("Authorization", authorization);
+        }
+        return http.send(request.build(), HttpResponse.BodyHandlers.ofString());
+    }
+
+    private KafkaStreams streams() {
+        KafkaStreams streams = factory.getKafkaStreams();
+        if (streams == null || !streams.state().isRunningOrRebalancing()) {
+            throw new InvalidStateStoreException("Kafka Streams is not running");
+        }
+        return streams;
+    }
+}
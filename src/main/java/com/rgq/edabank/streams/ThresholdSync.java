@@ -0,0 +1,45 @@
+package com.rgq.edabank.streams;
+
+import org.apache.kafka.streams.KeyValue;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+/**
+ * Publica pos.alert_thresholds en el topic compactado alerts.thresholds, del que la topología
+ * construye la GlobalKTable de umbrales (umbral NULL = tombstone). Los triggers de V16 convierten un
+ * DELETE en threshold = NULL y los de V18 guardan el xid de cada escritura (ver CompactedTableSync).
+ */
+@Component
+@ConditionalOnProperty(name = "app.alerts.thresholds.sync.enabled", havingValue = "true", matchIfMissing = true)
+public class ThresholdSync extends CompactedTableSync {
+
+    public ThresholdSync(JdbcTemplate jdbc, KafkaTemplate<String, String> kafkaTemplate) {
+        super(jdbc, kafkaTemplate, TopologyConfig.THRESHOLDS_TOPIC);
+    }
+
+    @Scheduled(initialDelayString = "${app.alerts.thresholds.sync.initial-delay-ms:5000}",
+            fixedDelayString = "${app.alerts.thresholds.sync.interval-ms:30000}")
+    public void sync() {
+        publishChanges();
+    }
+
+    @Override
+    protected List<KeyValue<String, String>> changedSince(JdbcTemplate jdbc, String sinceXid) {
+        String sql = "SELECT scope, scope_key, threshold FROM pos.alert_thresholds";
+        Object[] args = {};
+        if (sinceXid != null) {
+            sql += " WHERE change_xid >= ?::xid8";
+            args = new Object[]{sinceXid};
+        }
+        return jdbc.query(sql, (rs, i) -> {
+            BigDecimal threshold = rs.getBigDecimal(3);
+            return KeyValue.pair(rs.getString(1) + ":" + rs.getString(2), threshold == null ? null : threshold.toPlainString());
+        }, args);
+    }
+}
@@ -1,56 +1,209 @@
 package com.rgq.edabank.streams;
 
-import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.ObjectMapper;
+import com.rgq.events.FraudAlert;
+import com.rgq.streams.FraudDetectionProcessor;
+import org.apache.kafka.clients.admin.NewTopic;
 import org.apache.kafka.common.serialization.Serde;
 import org.apache.kafka.common.serialization.Serdes;
+import org.apache.kafka.common.utils.Bytes;
+import org.apache.kafka.streams.KeyValue;
 import org.apache.kafka.streams.StreamsBuilder;
 import org.apache.kafka.streams.kstream.Consumed;
+import org.apache.kafka.streams.kstream.GlobalKTable;
 import org.apache.kafka.streams.kstream.KStream;
+import org.apache.kafka.streams.kstream.Materialized;
+import org.apache.kafka.streams.kstream.Named;
 import org.apache.kafka.streams.kstream.Produced;
+import org.apache.kafka.streams.kstream.Repartitioned;
+import org.apache.kafka.streams.state.KeyValueStore;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.kafka.config.TopicBuilder;
 
+import java.util.List;
+
+/**
+ * Topología única de alertas. Una etapa de entrada (ingress-*) decodifica payments.events y
+ * transfers.events (o el sobre CDC de dbz-outbox.pos.outbox con app.streams.ingress.source=outbox-cdc)
+ * una sola vez y descarta reentregas; de ella cuelgan las ramas con nombre threshold-* (umbral y
+ * reglas Drools, una alerta por evento), las de estado por cuenta (velocidad, anomalía) y transfer-*
+ * (grafo), que confluyen en un único sumidero (alerts-*) hacia alerts.suspect, donde se
+ * enriquecen con el perfil de la cuenta (enrichment-*) y se suprimen las repetidas.
+ * GET /streams/topology devuelve la descripción completa.
+ */
 @Configuration
 public class TopologyConfig {
   private static final Logger log = LoggerFactory.getLogger(TopologyConfig.class);
-  private final ObjectMapper mapper = new ObjectMapper();
+
+  // Última alerta por cuenta, consultable vía /streams/accounts/{id}/alerts/latest
+  public static final String LATEST_ALERTS_STORE = "latest-alerts-store";
+
+  // Umbrales dinámicos (clave "account:<id>" o "currency:<code>"), replicados en cada instancia
+  public static final String THRESHOLDS_TOPIC = "alerts.thresholds";
+  public static final String THRESHOLDS_STORE = "alert-thresholds-store";
+
+  // Topic CDC crudo de pos.outbox (conector Debezium sin EventRouter)
+  public static final String OUTBOX_CDC_TOPIC = "dbz-outbox.pos.outbox";
 
   @Value("${app.alerts.threshold:10000}")
   private double threshold;
 
+  private final VelocityAggregation velocity;
+  private final AnomalyScoring anomaly;
+  private final TransferGraph graph;
+  private final EventDeduplicator dedup;
+  private final AlertSuppression suppression;
+  private final FraudDetectionProcessor rules;
+  private final AlertEnrichment enrichment;
 
+  // Particiones de los topics de reparto (y por tanto tareas por etapa); 0 = las del topic de entrada
+  @Value("${app.streams.partitions:0}")
+  private int partitions;
+
+  // topics: payments.events + transfers.events; outbox-cdc: sobre Debezium de pos.outbox
+  @Value("${app.streams.ingress.source:topics}")
+  private String ingressSource;
+
+  public TopologyConfig(VelocityAggregation velocity, AnomalyScoring anomaly, TransferGraph graph, EventDeduplicator dedup,
+      AlertSuppression suppression, FraudDetectionProcessor rules, AlertEnrichment enrichment) {
+    this.dedup = dedup;
+    this.enrichment = enrichment;
+    this.rules = rules;
+    this.suppression = suppression;
+    this.velocity = velocity;
+    this.anomaly = anomaly;
+    this.graph = graph;
+  }
+
+  @Bean
+  public NewTopic alertThresholdsTopic() {
+    return TopicBuilder.name(THRESHOLDS_TOPIC).partitions(1).compact().build();
+  }
+
+  // Streams no arranca si falta un topic de entrada y con el EventRouter el topic crudo no se produce
   @Bean
-  public KStream<String, String> kstream(StreamsBuilder streamsBuilder) {
+  @ConditionalOnProperty(name = "app.streams.ingress.source", havingValue = "outbox-cdc")
+  public NewTopic outboxCdcTopic() {
+    return TopicBuilder.name(OUTBOX_CDC_TOPIC).partitions(1).build();
+  }
+
+  // Co-particionado con alerts-by-account para que el join de enriquecimiento sea local
+  @Bean
+  public NewTopic accountProfilesTopic() {
+    return TopicBuilder.name(AlertEnrichment.PROFILES_TOPIC).partitions(enrichment.getPartitions()).compact().build();
+  }
+
+  @Bean
+  public KStream<String, FinancialEvent> kstream(StreamsBuilder streamsBuilder) {
     Serde<String> stringSerde = Serdes.String();
-    KStream<String, String> payments = streamsBuilder.stream("payments.events", Consumed.with(stringSerde, stringSerde));
-    KStream<String, String> transfers = streamsBuilder.stream("transfers.events", Consumed.with(stringSerde, stringSerde));
-    KStream<String, String> merged = payments.merge(transfers).peek((k, v) -> log.debug("evt key={} payload={}", k, v));
-
-    KStream<String, String> alerts = merged.filter((k, v) -> {
-      try {
-        JsonNode node = mapper.readTree(v);
-        double amount = node.has("amount") ? node.get("amount").asDouble(0.0) : 0.0;
-        return amount >= threshold;
-      } catch (Exception e) {
-        log.warn("Invalid JSON payload: {}", v);
-        return false;
+    // Decodificación en una sola pasada (sin JsonNode); los payloads inválidos llegan como null
+    Serde<FinancialEvent> eventSerde = new FinancialEventSerde();
+    KStream<String, FinancialEvent> merged;
+    if ("outbox-cdc".equals(ingressSource)) {
+      // Cada fila de pos.outbox llega una vez con su sobre; lo que no es un create se decodifica como null
+      merged = streamsBuilder.stream(OUTBOX_CDC_TOPIC,
+          Consumed.with(stringSerde, new DebeziumOutboxSerde()).withName("ingress-outbox-cdc"));
+    } else {
+      KStream<String, FinancialEvent> payments = streamsBuilder.stream("payments.events",
+          Consumed.with(stringSerde, eventSerde).withName("ingress-payments"));
+      KStream<String, FinancialEvent> transfers = streamsBuilder.stream("transfers.events",
+          Consumed.with(stringSerde, eventSerde).withName("ingress-transfers"));
+      merged = payments.merge(transfers, Named.as("ingress-merge"));
+    }
+    if (dedup.isEnabled()) {
+      // Todo lo que sigue trabaja una sola vez por evento aunque el outbox lo haya entregado varias
+      merged = dedup.dedup(streamsBuilder, merged);
+    }
+    merged = merged.peek((k, v) -> log.debug("evt key={} event={}", k, v), Named.as("ingress-log"));
+    KStream<String, FinancialEvent> events = merged.filter((k, v) -> v != null, Named.as("ingress-valid"));
+
+    // Umbral efectivo: el de la cuenta, si no el de la divisa y si no app.alerts.threshold.
+    // La GlobalKTable está completa en cada instancia, así que las búsquedas son locales y en memoria/RocksDB.
+    GlobalKTable<String, String> thresholds = streamsBuilder.globalTable(THRESHOLDS_TOPIC,
+        Consumed.with(stringSerde, stringSerde),
+        Materialized.<String, String, KeyValueStore<Bytes, byte[]>>as(THRESHOLDS_STORE)
+            .withKeySerde(stringSerde)
+            .withValueSerde(stringSerde));
+
+    // Umbral y reglas Drools se deciden en la misma etapa para emitir como mucho una alerta por evento.
+    // Las alertas se clavean por cuenta de origen (la clave original si el evento no la trae)
+    KStream<String, String> alerts = events
+        .leftJoin(thresholds, (k, v) -> "account:" + v.getAccountId(),
+            (v, t) -> KeyValue.pair(v, t), Named.as("threshold-by-account"))
+        .leftJoin(thresholds, (k, p) -> "currency:" + p.key.getCurrency(),
+            (p, t) -> KeyValue.pair(p.key, p.value != null ? p.value : t), Named.as("threshold-by-currency"))
+        .flatMap((k, p) -> eventAlert(k, p.key, effectiveThreshold(p.value)), Named.as("threshold-rules-check"));
+    if (velocity.isEnabled() || anomaly.isEnabled()) {
+      // Un único reparto por cuenta compartido por las etapas con estado por cuenta
+      KStream<String, FinancialEvent> byAccount = events
+          .filter((k, v) -> v.getAccountId() != null, Named.as("account-present"))
+          .selectKey((k, v) -> v.getAccountId(), Named.as("key-by-account"))
+          .repartition(repartitioned("events-by-account", eventSerde));
+      if (velocity.isEnabled()) {
+        alerts = alerts.merge(velocity.alerts(streamsBuilder, byAccount, eventSerde));
       }
-    }).mapValues(v -> {
-      try {
-        JsonNode node = mapper.readTree(v);
-        String type = node.has("type") ? node.get("type").asText("unknown") : "unknown";
-        double amount = node.has("amount") ? node.get("amount").asDouble(0.0) : 0.0;
-        return "{\"alert\":\"threshold_exceeded\",\"type\":\"" + type + "\",\"amount\":" + amount + "}";
-      } catch (Exception e) {
-        return "{\"alert\":\"parse_error\"}";
+      if (anomaly.isEnabled()) {
+        alerts = alerts.merge(anomaly.alerts(streamsBuilder, byAccount));
       }
-    });
+    }
+    if (graph.isEnabled()) {
+      // Solo las transferencias traen cuenta destino; TransferGraph filtra el resto
+      alerts = alerts.merge(graph.alerts(streamsBuilder, events));
+    }
+    // Un solo reparto por cuenta para el enriquecimiento, la tabla de últimas alertas y la supresión
+    alerts = alerts.repartition(repartitioned("alerts-by-account", stringSerde));
+    if (enrichment.isEnabled()) {
+      alerts = enrichment.enrich(streamsBuilder, alerts);
+    }
+    alerts.toTable(Named.as("latest-alerts"),
+        Materialized.<String, String, KeyValueStore<Bytes, byte[]>>as(LATEST_ALERTS_STORE)
+            .withKeySerde(stringSerde)
+            .withValueSerde(stringSerde));
 
-    alerts.to("alerts.suspect", Produced.with(stringSerde, stringSerde));
+    if (suppression.isEnabled()) {
+      // latest-alerts ve todas las alertas; a alerts.suspect (y pos.alerts) solo llegan la primera y el resumen
+      alerts = suppression.suppress(streamsBuilder, alerts);
+    }
+    alerts.to("alerts.suspect", Produced.with(stringSerde, stringSerde).withName("alerts-sink"));
     return merged;
   }
+
+  private <V> Repartitioned<String, V> repartitioned(String name, Serde<V> valueSerde) {
+    Repartitioned<String, V> repartitioned = Repartitioned.with(Serdes.String(), valueSerde).withName(name);
+    return partitions > 0 ? repartitioned.withNumberOfPartitions(partitions) : repartitioned;
+  }
+
+  /**
+   * El umbral es dueño de la alerta: si se supera se emite threshold_exceeded con las reglas que
+   * también dispararon en "rules"; si no, las reglas disparadas se emiten juntas como un rule_fired.
+   */
+  private List<KeyValue<String, String>> eventAlert(String key, FinancialEvent event, double limit) {
+    List<FraudAlert> fired = rules.evaluate(event);
+    List<String> names = fired.stream().map(FraudAlert::getRule).distinct().toList();
+    String alert;
+    if (event.getAmount() >= limit) {
+      alert = AlertEncoder.thresholdExceeded(event, limit, names);
+    } else if (!fired.isEmpty()) {
+      FraudAlert first = fired.get(0);
+      alert = AlertEncoder.ruleFired(first.getRule(), first.getEventId(), first.getAmount(), first.getMessage(), names);
+    } else {
+      return List.of();
+    }
+    return List.of(KeyValue.pair(event.getAccountId() != null ? event.getAccountId() : key, alert));
+  }
+
+  private double effectiveThreshold(String configured) {
+    if (configured == null) {
+      return threshold;
+    }
+    try {
+      return Double.parseDouble(configured);
+    } catch (NumberFormatException e) {
+      return threshold;
+    }
+  }
 }
@@ -0,0 +1,89 @@
+package com.rgq.edabank.streams;
+
+import org.apache.kafka.common.serialization.Deserializer;
+import org.apache.kafka.common.serialization.Serde;
+import org.apache.kafka.common.serialization.Serializer;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Mensaje interno de TransferGraph, siempre clavado por la cuenta a la que se refiere:
+ * IN (account = emisor hacia la clave), OUT (account = destinatario desde la clave),
+ * PATH (camino de dos saltos account -> via -> clave) y ALERT (alerta JSON ya codificada).
+ */
+public final class TransferEdge {
+
+    public static final byte IN = 1;
+    public static final byte OUT = 2;
+    public static final byte PATH = 3;
+    public static final byte ALERT = 4;
+
+    private final byte kind;
+    private final String account;
+    private final String via;
+
+    private TransferEdge(byte kind, String account, String via) {
+        this.kind = kind;
+        this.account = account;
+        this.via = via;
+    }
+
+    public static TransferEdge in(String from) { return new TransferEdge(IN, from, null); }
+    public static TransferEdge out(String to) { return new TransferEdge(OUT, to, null); }
+    public static TransferEdge path(String origin, String via) { return new TransferEdge(PATH, origin, via); }
+    public static TransferEdge alert(String json) { return new TransferEdge(ALERT, json, null); }
+
+    public byte getKind() { return kind; }
+    public String getAccount() { return account; }
+    public String getVia() { return via; }
+
+    /** JSON de la alerta (solo kind ALERT). */
+    public String getAlert() { return account; }
+
+    public static final class TransferEdgeSerde implements Serde<TransferEdge> {
+        @Override
+        public Serializer<TransferEdge> serializer() {
+            return (topic, e) -> {
+                if (e == null) {
+                    return null;
+                }
+                byte[] account = bytes(e.account);
+                byte[] via = bytes(e.via);
+                return ByteBuffer.allocate(1 + 2 * Integer.BYTES + account.length + via.length)
+                        .put(e.kind)
+                        .putInt(e.account == null ? -1 : account.length).put(account)
+                        .putInt(e.via == null ? -1 : via.length).put(via)
+                        .array();
+            };
+        }
+
+        @Override
+        public Deserializer<TransferEdge> deserializer() {
+            return (topic, data) -> {
+                if (data == null) {
+                    return null;
+                }
+                ByteBuffer buf = ByteBuffer.wrap(data);
+                byte kind = buf.get();
+                String account = string(buf);
+                String via = string(buf);
+                return new TransferEdge(kind, account, via);
+            };
+        }
+
+        private static byte[] bytes(String s) {
+            return s == null ? new byte[0] : s.getBytes(StandardCharsets.UTF_8);
+        }
+
+        private static String string(ByteBuffer buf) {
+            int len = buf.getInt();
+            if (len < 0) {
+                return null;
+            }
+            String s = new String(buf.array(), buf.position(), len, StandardCharsets.UTF_8);
+            buf.position(buf.position() + len);
+            return s;
+        }
+    }
+}
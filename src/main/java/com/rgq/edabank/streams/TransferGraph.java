@@ -0,0 +1,240 @@
+package com.rgq.edabank.streams;
+
+import org.apache.kafka.common.serialization.Serdes;
+import org.apache.kafka.streams.KeyValue;
+import org.apache.kafka.streams.StreamsBuilder;
+import org.apache.kafka.streams.kstream.Branched;
+import org.apache.kafka.streams.kstream.KStream;
+import org.apache.kafka.streams.kstream.Named;
+import org.apache.kafka.streams.kstream.Repartitioned;
+import org.apache.kafka.streams.processor.api.Processor;
+import org.apache.kafka.streams.processor.api.ProcessorContext;
+import org.apache.kafka.streams.processor.api.Record;
+import org.apache.kafka.streams.state.Stores;
+import org.apache.kafka.streams.state.WindowStore;
+import org.apache.kafka.streams.state.WindowStoreIterator;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Patrones en el grafo de transferencias dentro de una ventana de tiempo:
+ * <ul>
+ *   <li>fan-out: una cuenta envía a muchos destinatarios distintos;</li>
+ *   <li>fan-in (mula): una cuenta recibe de muchos emisores distintos;</li>
+ *   <li>ciclo A -> B -> C -> A (round-tripping).</li>
+ * </ul>
+ * Cada transferencia A -> B se reparte como OUT en la clave A e IN en la clave B. La primera etapa
+ * guarda las aristas entrantes y salientes de cada cuenta, detecta fan-in/fan-out y emite los
+ * caminos de dos saltos V -> N -> W hacia la clave W; la segunda, clavada por el final del camino,
+ * cierra el ciclo cuando existe la arista W -> V. Las aristas viven en window stores cuya
+ * retención es la ventana, así que RocksDB descarta los segmentos caducados por sí solo.
+ * <p>
+ * Cada arista nueva en N genera un camino por cada vecino del lado contrario, así que en una cuenta
+ * concentradora (comercio, pasarela) una sola transferencia repartiría cientos de caminos. Por encima
+ * de max-path-degree vecinos no se generan caminos a través de N: los ciclos se siguen viendo desde
+ * sus otras dos cuentas, salvo el que solo podría cerrarse a través de N en la cuenta de menor id.
+ * Esas cuentas superan el mínimo de fan-in/fan-out y ya generan su propia alerta.
+ */
+@Component
+public class TransferGraph {
+
+    public static final String IN_EDGES_STORE = "transfer-in-edges-store";
+    public static final String OUT_EDGES_STORE = "transfer-out-edges-store";
+    public static final String PATHS_STORE = "transfer-paths-store";
+    public static final String CLOSING_EDGES_STORE = "transfer-closing-edges-store";
+
+    @Value("${app.alerts.graph.enabled:true}")
+    private boolean enabled;
+
+    @Value("${app.alerts.graph.window-ms:3600000}")
+    private long windowMs;
+
+    @Value("${app.alerts.graph.fan-out-min:10}")
+    private int fanOutMin;
+
+    @Value("${app.alerts.graph.fan-in-min:10}")
+    private int fanInMin;
+
+    // Tope de aristas leídas por cuenta y evento: acota el coste en cuentas muy activas
+    @Value("${app.alerts.graph.max-neighbors:1000}")
+    private int maxNeighbors;
+
+    // Vecinos del lado contrario por encima de los cuales una cuenta no genera caminos (ver arriba)
+    @Value("${app.alerts.graph.max-path-degree:50}")
+    private int maxPathDegree;
+
+    // Mismo valor que usa TopologyConfig para sus repartos; 0 = las del topic de entrada
+    @Value("${app.streams.partitions:0}")
+    private int partitions;
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public KStream<String, String> alerts(StreamsBuilder builder, KStream<String, FinancialEvent> transfers) {
+        Duration window = Duration.ofMillis(windowMs);
+        TransferEdge.TransferEdgeSerde edgeSerde = new TransferEdge.TransferEdgeSerde();
+        for (String store : List.of(IN_EDGES_STORE, OUT_EDGES_STORE, PATHS_STORE, CLOSING_EDGES_STORE)) {
+            builder.addStateStore(Stores.windowStoreBuilder(
+                    Stores.persistentWindowStore(store, window, window, true), Serdes.String(), Serdes.String()));
+        }
+
+        KStream<String, TransferEdge> edges = transfers
+                .filter((k, v) -> v != null && v.getAccountId() != null && v.getCounterpartyId() != null
+                        && !v.getAccountId().equals(v.getCounterpartyId()))
+                .flatMap((k, v) -> List.of(
+                        KeyValue.pair(v.getAccountId(), TransferEdge.out(v.getCounterpartyId())),
+                        KeyValue.pair(v.getCounterpartyId(), TransferEdge.in(v.getAccountId()))),
+                        Named.as("transfer-edges"))
+                .repartition(repartitioned("transfer-edges-by-account", edgeSerde));
+
+        Map<String, KStream<String, TransferEdge>> adjacency = edges
+                .process(AdjacencyProcessor::new, Named.as("transfer-adjacency"), IN_EDGES_STORE, OUT_EDGES_STORE)
+                .split(Named.as("transfer-adjacency-"))
+                .branch((k, v) -> v.getKind() == TransferEdge.ALERT, Branched.as("alerts"))
+                .defaultBranch(Branched.as("paths"));
+
+        KStream<String, TransferEdge> paths = adjacency.get("transfer-adjacency-paths")
+                .repartition(repartitioned("transfer-paths-by-account", edgeSerde));
+
+        KStream<String, String> cycles = paths
+                .merge(edges.filter((k, v) -> v.getKind() == TransferEdge.OUT), Named.as("transfer-cycle-input"))
+                .process(CycleProcessor::new, Named.as("transfer-cycles"), PATHS_STORE, CLOSING_EDGES_STORE);
+
+        return adjacency.get("transfer-adjacency-alerts")
+                .mapValues(TransferEdge::getAlert, Named.as("transfer-fan-alerts"))
+                .merge(cycles);
+    }
+
+    private Repartitioned<String, TransferEdge> repartitioned(String name, TransferEdge.TransferEdgeSerde edgeSerde) {
+        Repartitioned<String, TransferEdge> repartitioned = Repartitioned.with(Serdes.String(), edgeSerde).withName(name);
+        return partitions > 0 ? repartitioned.withNumberOfPartitions(partitions) : repartitioned;
+    }
+
+    /** Aristas entrantes/salientes por cuenta: alertas de fan-in/fan-out y caminos de dos saltos. */
+    private final class AdjacencyProcessor implements Processor<String, TransferEdge, String, TransferEdge> {
+        private ProcessorContext<String, TransferEdge> context;
+        private WindowStore<String, String> inEdges;
+        private WindowStore<String, String> outEdges;
+
+        @Override
+        public void init(ProcessorContext<String, TransferEdge> context) {
+            this.context = context;
+            this.inEdges = context.getStateStore(IN_EDGES_STORE);
+            this.outEdges = context.getStateStore(OUT_EDGES_STORE);
+        }
+
+        @Override
+        public void process(Record<String, TransferEdge> record) {
+            String node = record.key();
+            TransferEdge edge = record.value();
+            long ts = record.timestamp();
+            boolean incoming = edge.getKind() == TransferEdge.IN;
+            WindowStore<String, String> same = incoming ? inEdges : outEdges;
+            WindowStore<String, String> opposite = incoming ? outEdges : inEdges;
+
+            Set<String> neighbors = recent(same, node, ts);
+            boolean isNew = neighbors.add(edge.getAccount());
+            same.put(node, edge.getAccount(), ts);
+            int min = incoming ? fanInMin : fanOutMin;
+            // Una alerta al alcanzar el mínimo; vuelve a dispararse si el conjunto se renueva tras caducar
+            if (isNew && neighbors.size() == min) {
+                context.forward(record.withValue(TransferEdge.alert(
+                        AlertEncoder.transferFan(incoming ? "transfer_fan_in" : "transfer_fan_out", node, neighbors.size(), windowMs))));
+            }
+
+            // Nuevos caminos V -> node -> W que pasan por esta arista, enviados a la clave W
+            Set<String> others = recent(opposite, node, ts);
+            if (others.size() > maxPathDegree) {
+                return;
+            }
+            for (String other : others) {
+                String origin = incoming ? edge.getAccount() : other;
+                String target = incoming ? other : edge.getAccount();
+                if (!origin.equals(target)) {
+                    context.forward(new Record<>(target, TransferEdge.path(origin, node), ts));
+                }
+            }
+        }
+
+        private Set<String> recent(WindowStore<String, String> store, String node, long ts) {
+            Set<String> accounts = new HashSet<>();
+            try (WindowStoreIterator<String> it = store.fetch(node, ts - windowMs, ts)) {
+                int scanned = 0;
+                while (it.hasNext() && scanned++ < maxNeighbors) {
+                    accounts.add(it.next().value);
+                }
+            }
+            return accounts;
+        }
+    }
+
+    /** Cierre de ciclos en la cuenta final W: camino V -> N -> W más la arista W -> V. */
+    private final class CycleProcessor implements Processor<String, TransferEdge, String, String> {
+        private ProcessorContext<String, String> context;
+        private WindowStore<String, String> paths;
+        private WindowStore<String, String> closingEdges;
+
+        @Override
+        public void init(ProcessorContext<String, String> context) {
+            this.context = context;
+            this.paths = context.getStateStore(PATHS_STORE);
+            this.closingEdges = context.getStateStore(CLOSING_EDGES_STORE);
+        }
+
+        @Override
+        public void process(Record<String, TransferEdge> record) {
+            String node = record.key();
+            TransferEdge edge = record.value();
+            long ts = record.timestamp();
+            if (edge.getKind() == TransferEdge.PATH) {
+                paths.put(node, edge.getAccount() + "\u0000" + edge.getVia(), ts);
+                if (hasRecent(closingEdges, node, ts, edge.getAccount())) {
+                    emit(record, edge.getAccount(), edge.getVia(), node);
+                }
+            } else if (edge.getKind() == TransferEdge.OUT) {
+                closingEdges.put(node, edge.getAccount(), ts);
+                List<String> vias = new ArrayList<>();
+                try (WindowStoreIterator<String> it = paths.fetch(node, ts - windowMs, ts)) {
+                    int scanned = 0;
+                    while (it.hasNext() && scanned++ < maxNeighbors) {
+                        String value = it.next().value;
+                        int sep = value.indexOf('\u0000');
+                        if (value.substring(0, sep).equals(edge.getAccount())) {
+                            vias.add(value.substring(sep + 1));
+                        }
+                    }
+                }
+                for (String via : new HashSet<>(vias)) {
+                    emit(record, edge.getAccount(), via, node);
+                }
+            }
+        }
+
+        private boolean hasRecent(WindowStore<String, String> store, String node, long ts, String account) {
+            try (WindowStoreIterator<String> it = store.fetch(node, ts - windowMs, ts)) {
+                int scanned = 0;
+                while (it.hasNext() && scanned++ < maxNeighbors) {
+                    if (account.equals(it.next().value)) {
+                        return true;
+                    }
+                }
+            }
+            return false;
+        }
+
+        // Cada ciclo se detecta en sus tres cuentas; solo lo emite la de menor id para no triplicarlo
+        private void emit(Record<String, TransferEdge> record, String a, String b, String c) {
+            if (c.compareTo(a) < 0 && c.compareTo(b) < 0) {
+                context.forward(record.withValue(AlertEncoder.transferCycle(c, a, b)));
+            }
+        }
+    }
+}
@@ -0,0 +1,122 @@
+package com.rgq.edabank.streams;
+
+import org.apache.kafka.common.serialization.Serde;
+import org.apache.kafka.common.serialization.Serdes;
+import org.apache.kafka.common.utils.Bytes;
+import org.apache.kafka.streams.StreamsBuilder;
+import org.apache.kafka.streams.kstream.Grouped;
+import org.apache.kafka.streams.kstream.KStream;
+import org.apache.kafka.streams.kstream.Materialized;
+import org.apache.kafka.streams.kstream.Named;
+import org.apache.kafka.streams.kstream.TimeWindows;
+import org.apache.kafka.streams.kstream.Windowed;
+import org.apache.kafka.streams.processor.api.Processor;
+import org.apache.kafka.streams.processor.api.ProcessorContext;
+import org.apache.kafka.streams.processor.api.Record;
+import org.apache.kafka.streams.state.Stores;
+import org.apache.kafka.streams.state.WindowStore;
+import org.apache.kafka.streams.state.WindowStoreIterator;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+/**
+ * Velocidad por cuenta: agrega pagos y transferencias por cuenta de origen en ventanas
+ * deslizantes por saltos (hopping) sobre un store RocksDB y emite una alerta velocity_exceeded
+ * cuando el número de movimientos o el importe acumulado superan sus límites.
+ * <p>
+ * Con ventanas de window-ms que avanzan advance-ms, una misma ráfaga cae en hasta
+ * window-ms / advance-ms ventanas y todas cruzan el límite a la vez. Solo alerta la primera: las
+ * ventanas que se solapan con una ya alertada de la misma cuenta se descartan (store
+ * account-velocity-alerted-store, clave cuenta y timestamp el inicio de la ventana alertada).
+ */
+@Component
+public class VelocityAggregation {
+
+    public static final String STORE = "account-velocity-store";
+    public static final String ALERTED_STORE = "account-velocity-alerted-store";
+
+    @Value("${app.alerts.velocity.enabled:true}")
+    private boolean enabled;
+
+    @Value("${app.alerts.velocity.window-ms:300000}")
+    private long windowMs;
+
+    @Value("${app.alerts.velocity.advance-ms:60000}")
+    private long advanceMs;
+
+    @Value("${app.alerts.velocity.grace-ms:30000}")
+    private long graceMs;
+
+    @Value("${app.alerts.velocity.retention-ms:3600000}")
+    private long retentionMs;
+
+    @Value("${app.alerts.velocity.max-count:10}")
+    private long maxCount;
+
+    @Value("${app.alerts.velocity.max-amount:50000}")
+    private double maxAmount;
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public long getWindowMs() {
+        return windowMs;
+    }
+
+    /** byAccount debe estar clavado y particionado por cuenta de origen. */
+    public KStream<String, String> alerts(StreamsBuilder builder, KStream<String, FinancialEvent> byAccount,
+                                          Serde<FinancialEvent> eventSerde) {
+        Duration retention = Duration.ofMillis(Math.max(retentionMs, windowMs + graceMs));
+        builder.addStateStore(Stores.windowStoreBuilder(
+                Stores.persistentWindowStore(ALERTED_STORE, retention, Duration.ofMillis(windowMs), false),
+                Serdes.String(), Serdes.Long()));
+        return byAccount
+                .groupByKey(Grouped.with(Serdes.String(), eventSerde))
+                .windowedBy(TimeWindows.ofSizeAndGrace(Duration.ofMillis(windowMs), Duration.ofMillis(graceMs))
+                        .advanceBy(Duration.ofMillis(advanceMs)))
+                .aggregate(AccountVelocity::new,
+                        (account, event, agg) -> agg.add(event.getAmount(), maxCount, maxAmount),
+                        Named.as("velocity-aggregate"),
+                        Materialized.<String, AccountVelocity, WindowStore<Bytes, byte[]>>as(STORE)
+                                .withKeySerde(Serdes.String())
+                                .withValueSerde(new AccountVelocity.AccountVelocitySerde())
+                                .withRetention(retention)
+                                // Sin caché: cada actualización llega al filtro y no se pierde el cruce del límite
+                                .withCachingDisabled())
+                .toStream(Named.as("velocity-updates"))
+                .filter((w, v) -> v != null && v.isAlertedNow())
+                .process(BurstProcessor::new, Named.as("velocity-alerts"), ALERTED_STORE);
+    }
+
+    /** Una alerta por ráfaga: descarta las ventanas que se solapan con otra ya alertada de la cuenta. */
+    private final class BurstProcessor implements Processor<Windowed<String>, AccountVelocity, String, String> {
+        private ProcessorContext<String, String> context;
+        private WindowStore<String, Long> alerted;
+
+        @Override
+        public void init(ProcessorContext<String, String> context) {
+            this.context = context;
+            this.alerted = context.getStateStore(ALERTED_STORE);
+        }
+
+        @Override
+        public void process(Record<Windowed<String>, AccountVelocity> record) {
+            String account = record.key().key();
+            long start = record.key().window().start();
+            long end = record.key().window().end();
+            // Dos ventanas de la misma longitud se solapan si sus inicios distan menos de window-ms
+            try (WindowStoreIterator<Long> it = alerted.fetch(account, start - windowMs + 1, start + windowMs - 1)) {
+                if (it.hasNext()) {
+                    return;
+                }
+            }
+            alerted.put(account, end, start);
+            AccountVelocity v = record.value();
+            context.forward(new Record<>(account,
+                    AlertEncoder.velocityExceeded(account, v.getCount(), v.getSum(), start, end), record.timestamp()));
+        }
+    }
+}
@@ -0,0 +1,32 @@
+package com.rgq.events;
+
+public class FraudAlert {
+
+    private final String rule;
+    private final String eventId;
+    private final double amount;
+    private final String message;
+
+    public FraudAlert(String rule, String eventId, double amount, String message) {
+        this.rule = rule;
+        this.eventId = eventId;
+        this.amount = amount;
+        this.message = message;
+    }
+
+    public String getRule() {
+        return rule;
+    }
+
+    public String getEventId() {
+        return eventId;
+    }
+
+    public double getAmount() {
+        return amount;
+    }
+
+    public String getMessage() {
+        return message;
+    }
+}
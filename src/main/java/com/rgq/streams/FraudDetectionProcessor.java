@@ -1,50 +1,46 @@
 package com.rgq.streams;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
-import com.jayway.jsonpath.JsonPath;
+import com.rgq.edabank.streams.FinancialEvent;
+import com.rgq.events.FraudAlert;
 import com.rgq.events.PaymentEvent;
-import org.apache.kafka.common.serialization.Serdes;
-import org.apache.kafka.streams.StreamsBuilder;
-import org.apache.kafka.streams.kstream.Consumed;
-import org.apache.kafka.streams.kstream.KStream;
-import org.kie.api.runtime.KieContainer;
-import org.kie.api.runtime.KieSession;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
+import java.util.List;
+
+/**
+ * Reglas Drools de la topología de alertas. TopologyConfig las evalúa en la misma etapa que el
+ * umbral, sobre los eventos ya decodificados y deduplicados (payments.events / transfers.events),
+ * así que cada pago se evalúa una sola vez y produce como mucho una alerta.
+ */
 @Component
 public class FraudDetectionProcessor {
 
-    private static final String INPUT_TOPIC = "dbz-outbox.pos.outbox";
-    private static final String OUTPUT_TOPIC = "alerts.suspect";
+    private static final Logger log = LoggerFactory.getLogger(FraudDetectionProcessor.class);
 
     @Autowired
-    private KieContainer kieContainer;
+    private FraudRuleEngine ruleEngine;
 
-    @Autowired
-    private KafkaTemplate<String, String> kafkaTemplate;
+    @Value("${app.rules.enabled:true}")
+    private boolean enabled;
 
-    private ObjectMapper objectMapper = new ObjectMapper();
+    public boolean isEnabled() {
+        return enabled;
+    }
 
-    @Autowired
-    void buildPipeline(StreamsBuilder streamsBuilder) {
-        KStream<String, String> messageStream = streamsBuilder
-                .stream(INPUT_TOPIC, Consumed.with(Serdes.String(), Serdes.String()));
-
-        messageStream.foreach((key, value) -> {
-            try {
-                String payload = JsonPath.read(value, "$.payload.after.payload");
-                PaymentEvent paymentEvent = objectMapper.readValue(payload, PaymentEvent.class);
-
-                KieSession kieSession = kieContainer.newKieSession();
-                kieSession.setGlobal("kafkaTemplate", kafkaTemplate);
-                kieSession.insert(paymentEvent);
-                kieSession.fireAllRules();
-                kieSession.dispose();
-            } catch (Exception e) {
-                // Manejar la excepción
-            }
-        });
+    /** Reglas que dispara el evento; vacío si la rama está desactivada o la evaluación falla. */
+    public List<FraudAlert> evaluate(FinancialEvent event) {
+        if (!enabled) {
+            return List.of();
+        }
+        try {
+            return ruleEngine.evaluate(new PaymentEvent(event.getId(), event.getAmount()));
+        } catch (Exception e) {
+            log.warn("Fraud rules skipped for event id={}: {}", event.getId(), e.getMessage());
+            return List.of();
+        }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,151 @@
+package com.rgq.streams;
+
+import com.rgq.events.FraudAlert;
+import com.rgq.events.PaymentEvent;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.kie.api.KieBase;
+import org.kie.api.runtime.KieSession;
+import org.kie.api.runtime.rule.FactHandle;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Ejecuta las reglas de fraude sobre sesiones reutilizadas de un pool de KieSession en lugar de
+ * crear y destruir una sesión por evento. Al devolver una sesión al pool se retiran todos sus hechos,
+ * también los que las reglas hayan insertado (insert/insertLogical), para que no pasen al evento siguiente.
+ * La KieBase se puede sustituir en caliente con swap(): cada versión tiene su propio pool, las
+ * evaluaciones en curso terminan con las reglas anteriores y sus sesiones se descartan al volver.
+ */
+@Component
+public class FraudRuleEngine implements DisposableBean {
+
+    private static final class Generation {
+        final KieBase kieBase;
+        final long version;
+        final BlockingQueue<KieSession> pool;
+
+        Generation(KieBase kieBase, long version, int poolSize) {
+            this.kieBase = kieBase;
+            this.version = version;
+            this.pool = new ArrayBlockingQueue<>(poolSize);
+        }
+    }
+
+    private final int poolSize;
+    private volatile Generation current;
+    private final Timer latency;
+    private final Counter fired;
+    private final Counter leftover;
+
+    public FraudRuleEngine(KieBase kieBase, MeterRegistry registry,
+                           @Value("${app.rules.session-pool-size:4}") int poolSize) {
+        this.poolSize = poolSize;
+        this.current = new Generation(kieBase, 1, poolSize);
+        this.latency = Timer.builder("fraud.rules.latency")
+                .description("Time to insert an event and fire the fraud rules")
+                .publishPercentileHistogram()
+                .register(registry);
+        this.fired = Counter.builder("fraud.rules.fired")
+                .description("Fraud rules fired")
+                .register(registry);
+        this.leftover = Counter.builder("fraud.rules.facts.leftover")
+                .description("Facts inserted by the rules and retracted before returning a session to the pool")
+                .register(registry);
+        Gauge.builder("fraud.rules.version", this, e -> e.current.version)
+                .description("Version of the fraud rule base in service")
+                .register(registry);
+    }
+
+    /** Pone en servicio una nueva KieBase sin pausar la evaluación; devuelve la nueva versión. */
+    public synchronized long swap(KieBase kieBase) {
+        Generation old = current;
+        current = new Generation(kieBase, old.version + 1, poolSize);
+        disposeIdle(old);
+        return current.version;
+    }
+
+    public long getVersion() {
+        return current.version;
+    }
+
+    /**
+     * Inserta el evento en una sesión del pool, dispara las reglas y devuelve las alertas que
+     * produjo (global "alerts"); la publicación queda a cargo de la topología.
+     */
+    public List<FraudAlert> evaluate(PaymentEvent event) {
+        long start = System.nanoTime();
+        Generation generation = current;
+        KieSession session = borrow(generation);
+        boolean reusable = false;
+        List<FraudAlert> alerts = new ArrayList<>();
+        try {
+            session.setGlobal("alerts", alerts);
+            session.insert(event);
+            int count = session.fireAllRules();
+            fired.increment(count);
+            reusable = clear(session);
+            return alerts;
+        } finally {
+            release(generation, session, reusable);
+            latency.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    private KieSession borrow(Generation generation) {
+        KieSession session = generation.pool.poll();
+        if (session == null) {
+            session = generation.kieBase.newKieSession();
+        }
+        return session;
+    }
+
+    // Retira el evento y cualquier hecho que hayan dejado las reglas; los lógicos caen con sus
+    // justificaciones, por eso se comprueba cada handle antes de borrarlo
+    private boolean clear(KieSession session) {
+        long facts = session.getFactCount();
+        for (FactHandle handle : new ArrayList<>(session.getFactHandles())) {
+            if (session.getObject(handle) != null) {
+                session.delete(handle);
+            }
+        }
+        if (facts > 1) {
+            leftover.increment(facts - 1);
+        }
+        return session.getFactCount() == 0;
+    }
+
+    // Una sesión que falló a mitad de evaluación puede conservar hechos, y una de una versión
+    // sustituida ya no debe reutilizarse: en ambos casos se descarta
+    private void release(Generation generation, KieSession session, boolean reusable) {
+        if (!reusable || generation != current || !generation.pool.offer(session)) {
+            session.dispose();
+            return;
+        }
+        // swap() pudo ocurrir entre la comprobación y el offer
+        if (generation != current) {
+            disposeIdle(generation);
+        }
+    }
+
+    private static void disposeIdle(Generation generation) {
+        KieSession session;
+        while ((session = generation.pool.poll()) != null) {
+            session.dispose();
+        }
+    }
+
+    @Override
+    public void destroy() {
+        disposeIdle(current);
+    }
+}
@@ -0,0 +1,117 @@
+package com.rgq.streams;
+
+import com.rgq.config.FraudRulesCompiler;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.kie.api.KieBase;
+import org.kie.api.io.Resource;
+import org.kie.api.runtime.KieSession;
+import org.kie.internal.io.ResourceFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Recarga en caliente de las reglas de fraude desde un directorio vigilado (*.drl). Cuando cambia
+ * el contenido del directorio compila el nuevo conjunto en el hilo del scheduler, fuera del camino
+ * de Streams, y lo pone en servicio con FraudRuleEngine.swap(). Un conjunto que no compila o no
+ * declara los globals esperados se rechaza y sigue en servicio la última versión válida.
+ */
+@Component
+@ConditionalOnProperty(name = "app.rules.reload.enabled", havingValue = "true")
+public class FraudRulesReloader {
+    private static final Logger log = LoggerFactory.getLogger(FraudRulesReloader.class);
+
+    private final FraudRuleEngine ruleEngine;
+    private final Counter applied;
+    private final Counter rejected;
+
+    @Value("${app.rules.reload.dir:/etc/eda/rules}")
+    private String dir;
+
+    // Huella del último conjunto evaluado (válido o no) para no recompilar lo mismo en cada sondeo
+    private String lastFingerprint;
+
+    public FraudRulesReloader(FraudRuleEngine ruleEngine, MeterRegistry registry) {
+        this.ruleEngine = ruleEngine;
+        this.applied = Counter.builder("fraud.rules.reloads").tag("result", "applied")
+                .description("Fraud rule sets reloaded from the rules directory").register(registry);
+        this.rejected = Counter.builder("fraud.rules.reloads").tag("result", "rejected")
+                .description("Fraud rule sets reloaded from the rules directory").register(registry);
+    }
+
+    @Scheduled(initialDelayString = "${app.rules.reload.interval-ms:10000}", fixedDelayString = "${app.rules.reload.interval-ms:10000}")
+    public void poll() {
+        List<Path> files;
+        try {
+            files = listRules(Paths.get(dir));
+        } catch (IOException e) {
+            log.warn("Cannot list rules directory {}: {}", dir, e.getMessage());
+            return;
+        }
+        if (files.isEmpty()) {
+            return;
+        }
+        String fingerprint = fingerprint(files);
+        if (fingerprint.equals(lastFingerprint)) {
+            return;
+        }
+        lastFingerprint = fingerprint;
+        long start = System.currentTimeMillis();
+        try {
+            KieBase kieBase = FraudRulesCompiler.compile(files.stream()
+                    .map(f -> ResourceFactory.newFileResource(f.toFile()))
+                    .toArray(Resource[]::new));
+            validate(kieBase);
+            long version = ruleEngine.swap(kieBase);
+            applied.increment();
+            log.info("Fraud rules v{} in service from {} ({} files, compiled in {} ms)", version, dir, files.size(), System.currentTimeMillis() - start);
+        } catch (Exception e) {
+            rejected.increment();
+            log.error("Rejected fraud rules from {}, keeping v{} in service: {}", dir, ruleEngine.getVersion(), e.getMessage());
+        }
+    }
+
+    // Una sesión de prueba garantiza que los globals que usa el motor existen en el nuevo conjunto
+    private void validate(KieBase kieBase) {
+        KieSession session = kieBase.newKieSession();
+        try {
+            session.setGlobal("alerts", new ArrayList<>());
+        } finally {
+            session.dispose();
+        }
+    }
+
+    private static List<Path> listRules(Path dir) throws IOException {
+        if (!Files.isDirectory(dir)) {
+            return List.of();
+        }
+        try (Stream<Path> s = Files.list(dir)) {
+            return s.filter(p -> p.getFileName().toString().endsWith(".drl") && Files.isRegularFile(p))
+                    .sorted()
+                    .collect(Collectors.toList());
+        }
+    }
+
+    private static String fingerprint(List<Path> files) {
+        return files.stream().map(p -> {
+            try {
+                return p + ":" + Files.size(p) + ":" + Files.getLastModifiedTime(p).toMillis();
+            } catch (IOException e) {
+                return p + ":?";
+            }
+        }).collect(Collectors.joining("|"));
+    }
+}
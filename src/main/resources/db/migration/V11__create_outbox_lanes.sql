@@ -0,0 +1,19 @@
+-- Schema: pos
+-- Nota: Flyway ejecuta cada migración en una transacción
+SET LOCAL search_path TO pos;
+
+-- Carriles (lanes) del outbox: cada aggregate_id cae en un carril por hash y cada carril
+-- lo publica una sola instancia mientras mantenga su lease vigente.
+CREATE TABLE IF NOT EXISTS pos.outbox_lanes (
+  lane integer PRIMARY KEY,
+  owner character varying(200),
+  lease_until timestamp with time zone
+);
+
+-- Latido de las instancias publicadoras, usado para repartir los carriles de forma equitativa
+CREATE TABLE IF NOT EXISTS pos.outbox_publishers (
+  instance_id character varying(200) PRIMARY KEY,
+  heartbeat_at timestamp with time zone NOT NULL DEFAULT now()
+);
+
+CREATE INDEX IF NOT EXISTS idx_outbox_unsent_created_at ON pos.outbox USING btree (created_at, id) WHERE sent = false;
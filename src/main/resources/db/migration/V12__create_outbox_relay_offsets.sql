@@ -0,0 +1,10 @@
+-- Schema: pos
+-- Nota: Flyway ejecuta cada migración en una transacción
+SET LOCAL search_path TO pos;
+
+-- Último LSN confirmado por el relay de replicación lógica del outbox (uno por slot)
+CREATE TABLE IF NOT EXISTS pos.outbox_relay_offsets (
+  slot_name character varying(100) PRIMARY KEY,
+  confirmed_lsn character varying(32) NOT NULL,
+  updated_at timestamp with time zone NOT NULL DEFAULT now()
+);
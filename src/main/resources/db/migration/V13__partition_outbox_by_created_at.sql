@@ -0,0 +1,62 @@
+-- Schema: pos
+-- Nota: Flyway ejecuta cada migración en una transacción
+-- Convierte pos.outbox en una tabla particionada por rango de created_at (particiones diarias).
+-- Las filas históricas van a pos.outbox_p_history; OutboxPartitionMaintenance crea las
+-- particiones futuras y elimina las antiguas cuando todas sus filas están enviadas.
+SET LOCAL search_path TO pos;
+
+ALTER TABLE pos.outbox RENAME TO outbox_legacy;
+DROP INDEX IF EXISTS pos.idx_outbox_sent_created_at;
+DROP INDEX IF EXISTS pos.idx_outbox_unsent_created_at;
+
+UPDATE pos.outbox_legacy SET created_at = now() WHERE created_at IS NULL;
+
+CREATE TABLE pos.outbox (
+  id bigint NOT NULL DEFAULT nextval('pos.outbox_id_seq'::regclass),
+  aggregate_type character varying(255),
+  aggregate_id character varying(255),
+  type character varying(255),
+  payload jsonb,
+  sent boolean NOT NULL DEFAULT false,
+  created_at timestamp with time zone NOT NULL DEFAULT now(),
+  event_type character varying(255),
+  PRIMARY KEY (id, created_at)
+) PARTITION BY RANGE (created_at);
+
+CREATE TABLE pos.outbox_default PARTITION OF pos.outbox DEFAULT;
+
+DO $$
+DECLARE
+  today date := (now() AT TIME ZONE 'UTC')::date;
+  d date;
+BEGIN
+  EXECUTE format('CREATE TABLE pos.outbox_p_history PARTITION OF pos.outbox FOR VALUES FROM (MINVALUE) TO (%L)',
+                 today::text || ' 00:00:00+00');
+  FOR i IN 0..3 LOOP
+    d := today + i;
+    EXECUTE format('CREATE TABLE pos.%I PARTITION OF pos.outbox FOR VALUES FROM (%L) TO (%L)',
+                   'outbox_p' || to_char(d, 'YYYYMMDD'), d::text || ' 00:00:00+00', (d + 1)::text || ' 00:00:00+00');
+  END LOOP;
+END$$;
+
+INSERT INTO pos.outbox (id, aggregate_type, aggregate_id, type, payload, sent, created_at, event_type)
+SELECT id, aggregate_type, aggregate_id, type, payload, coalesce(sent, false), created_at, event_type
+FROM pos.outbox_legacy;
+
+ALTER SEQUENCE pos.outbox_id_seq OWNED BY pos.outbox.id;
+DROP TABLE pos.outbox_legacy;
+
+CREATE INDEX IF NOT EXISTS idx_outbox_sent_created_at ON pos.outbox USING btree (sent, created_at);
+CREATE INDEX IF NOT EXISTS idx_outbox_unsent_created_at ON pos.outbox USING btree (created_at, id) WHERE sent = false;
+
+-- Las publicaciones lógicas (Debezium y relay en proceso) deben seguir viendo los cambios como pos.outbox
+DO $$
+DECLARE pub text;
+BEGIN
+  FOREACH pub IN ARRAY ARRAY['dbz_outbox_pub', 'outbox_relay_pub'] LOOP
+    IF EXISTS (SELECT 1 FROM pg_publication WHERE pubname = pub) THEN
+      EXECUTE format('ALTER PUBLICATION %I ADD TABLE pos.outbox', pub);
+      EXECUTE format('ALTER PUBLICATION %I SET (publish_via_partition_root = true)', pub);
+    END IF;
+  END LOOP;
+END$$;
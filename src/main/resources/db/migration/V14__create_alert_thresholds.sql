@@ -0,0 +1,16 @@
+-- Schema: pos
+-- Nota: Flyway ejecuta cada migración en una transacción
+SET LOCAL search_path TO pos;
+
+-- Umbrales de alerta por cuenta o por divisa. ThresholdSync los publica en el topic compactado
+-- alerts.thresholds (clave "<scope>:<scope_key>") y la topología los lee como GlobalKTable.
+-- threshold NULL elimina el umbral (tombstone) y se vuelve al siguiente nivel: cuenta > divisa > app.alerts.threshold.
+CREATE TABLE IF NOT EXISTS pos.alert_thresholds (
+  scope character varying(20) NOT NULL CHECK (scope IN ('account', 'currency')),
+  scope_key character varying(100) NOT NULL,
+  threshold numeric(18,2),
+  updated_at timestamp with time zone NOT NULL DEFAULT now(),
+  PRIMARY KEY (scope, scope_key)
+);
+
+CREATE INDEX IF NOT EXISTS idx_alert_thresholds_updated_at ON pos.alert_thresholds (updated_at);
@@ -0,0 +1,17 @@
+-- Schema: pos
+-- Nota: Flyway ejecuta cada migración en una transacción
+SET LOCAL search_path TO pos;
+
+-- Cuenta -> cliente. CustomerProfileSync publica cada cuenta con los datos de su cliente en el topic
+-- compactado pos.customers.by-account (clave account_id) y la topología lo lee como KTable para
+-- enriquecer las alertas. customer_id NULL desvincula la cuenta (tombstone).
+CREATE TABLE IF NOT EXISTS pos.customer_accounts (
+  account_id character varying(100) PRIMARY KEY,
+  customer_id uuid,
+  updated_at timestamp with time zone NOT NULL DEFAULT now()
+);
+
+CREATE INDEX IF NOT EXISTS idx_customer_accounts_updated_at ON pos.customer_accounts (updated_at);
+CREATE INDEX IF NOT EXISTS idx_customer_accounts_customer_id ON pos.customer_accounts (customer_id);
+-- Los cambios de un cliente se republican para todas sus cuentas
+CREATE INDEX IF NOT EXISTS idx_customers_updated_at ON pos.customers (updated_at);
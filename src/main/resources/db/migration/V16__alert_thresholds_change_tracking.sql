@@ -0,0 +1,33 @@
+-- Schema: pos
+-- Nota: Flyway ejecuta cada migración en una transacción
+SET LOCAL search_path TO pos;
+
+-- ThresholdSync solo ve las filas con updated_at posterior a su marca: se mantiene en la base de datos
+-- para que un UPDATE que no lo toque no quede sin publicar.
+CREATE OR REPLACE FUNCTION pos.touch_updated_at() RETURNS trigger AS $$
+BEGIN
+  NEW.updated_at := now();
+  RETURN NEW;
+END;
+$$ LANGUAGE plpgsql;
+
+DROP TRIGGER IF EXISTS trg_alert_thresholds_touch ON pos.alert_thresholds;
+CREATE TRIGGER trg_alert_thresholds_touch
+  BEFORE INSERT OR UPDATE ON pos.alert_thresholds
+  FOR EACH ROW EXECUTE FUNCTION pos.touch_updated_at();
+
+-- Un DELETE no deja rastro que el sondeo pueda ver: se convierte en threshold = NULL, que ThresholdSync
+-- publica como tombstone. Las filas con threshold NULL ya sincronizadas se pueden purgar con
+-- ALTER TABLE pos.alert_thresholds DISABLE TRIGGER trg_alert_thresholds_soft_delete.
+CREATE OR REPLACE FUNCTION pos.alert_thresholds_soft_delete() RETURNS trigger AS $$
+BEGIN
+  UPDATE pos.alert_thresholds SET threshold = NULL
+   WHERE scope = OLD.scope AND scope_key = OLD.scope_key;
+  RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+
+DROP TRIGGER IF EXISTS trg_alert_thresholds_soft_delete ON pos.alert_thresholds;
+CREATE TRIGGER trg_alert_thresholds_soft_delete
+  BEFORE DELETE ON pos.alert_thresholds
+  FOR EACH ROW EXECUTE FUNCTION pos.alert_thresholds_soft_delete();
@@ -0,0 +1,41 @@
+-- Schema: pos
+-- Nota: Flyway ejecuta cada migración en una transacción
+SET LOCAL search_path TO pos;
+
+-- CustomerProfileSync sondea customer_accounts.updated_at y customers.updated_at/created_at: ambos
+-- se mantienen en la base de datos (pos.touch_updated_at, V16) para no perder UPDATE que no los toquen.
+DROP TRIGGER IF EXISTS trg_customer_accounts_touch ON pos.customer_accounts;
+CREATE TRIGGER trg_customer_accounts_touch
+  BEFORE INSERT OR UPDATE ON pos.customer_accounts
+  FOR EACH ROW EXECUTE FUNCTION pos.touch_updated_at();
+
+DROP TRIGGER IF EXISTS trg_customers_touch ON pos.customers;
+CREATE TRIGGER trg_customers_touch
+  BEFORE UPDATE ON pos.customers
+  FOR EACH ROW EXECUTE FUNCTION pos.touch_updated_at();
+
+-- Borrar el vínculo de una cuenta lo convierte en customer_id = NULL, que se publica como tombstone
+CREATE OR REPLACE FUNCTION pos.customer_accounts_soft_delete() RETURNS trigger AS $$
+BEGIN
+  UPDATE pos.customer_accounts SET customer_id = NULL WHERE account_id = OLD.account_id;
+  RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+
+DROP TRIGGER IF EXISTS trg_customer_accounts_soft_delete ON pos.customer_accounts;
+CREATE TRIGGER trg_customer_accounts_soft_delete
+  BEFORE DELETE ON pos.customer_accounts
+  FOR EACH ROW EXECUTE FUNCTION pos.customer_accounts_soft_delete();
+
+-- Borrar un cliente desvincula sus cuentas: cada una se publica como tombstone en el siguiente ciclo
+CREATE OR REPLACE FUNCTION pos.customers_unlink_accounts() RETURNS trigger AS $$
+BEGIN
+  UPDATE pos.customer_accounts SET customer_id = NULL WHERE customer_id = OLD.id;
+  RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+
+DROP TRIGGER IF EXISTS trg_customers_unlink_accounts ON pos.customers;
+CREATE TRIGGER trg_customers_unlink_accounts
+  AFTER DELETE ON pos.customers
+  FOR EACH ROW EXECUTE FUNCTION pos.customers_unlink_accounts();
@@ -0,0 +1,22 @@
+-- Schema: pos
+-- Nota: Flyway ejecuta cada migración en una transacción
+SET LOCAL search_path TO pos;
+
+-- updated_at = now() es la hora de inicio de la transacción: una transacción larga que confirma tarde
+-- queda por debajo de la marca de ThresholdSync. Cada escritura guarda además su xid, que
+-- CompactedTableSync compara con el xmin de la instantánea del ciclo anterior.
+-- Las filas existentes quedan con change_xid NULL: las publica la siembra inicial.
+CREATE OR REPLACE FUNCTION pos.touch_change_xid() RETURNS trigger AS $$
+BEGIN
+  NEW.change_xid := pg_current_xact_id();
+  RETURN NEW;
+END;
+$$ LANGUAGE plpgsql;
+
+ALTER TABLE pos.alert_thresholds ADD COLUMN IF NOT EXISTS change_xid xid8;
+CREATE INDEX IF NOT EXISTS idx_alert_thresholds_change_xid ON pos.alert_thresholds (change_xid);
+
+DROP TRIGGER IF EXISTS trg_alert_thresholds_change_xid ON pos.alert_thresholds;
+CREATE TRIGGER trg_alert_thresholds_change_xid
+  BEFORE INSERT OR UPDATE ON pos.alert_thresholds
+  FOR EACH ROW EXECUTE FUNCTION pos.touch_change_xid();
@@ -0,0 +1,21 @@
+-- Schema: pos
+-- Nota: Flyway ejecuta cada migración en una transacción
+SET LOCAL search_path TO pos;
+
+-- Cursor por xid de CustomerProfileSync (pos.touch_change_xid, V18): los borrados de vínculos y clientes
+-- pasan por UPDATE (V17) y también quedan marcados. Las filas existentes las publica la siembra inicial.
+ALTER TABLE pos.customer_accounts ADD COLUMN IF NOT EXISTS change_xid xid8;
+CREATE INDEX IF NOT EXISTS idx_customer_accounts_change_xid ON pos.customer_accounts (change_xid);
+
+ALTER TABLE pos.customers ADD COLUMN IF NOT EXISTS change_xid xid8;
+CREATE INDEX IF NOT EXISTS idx_customers_change_xid ON pos.customers (change_xid);
+
+DROP TRIGGER IF EXISTS trg_customer_accounts_change_xid ON pos.customer_accounts;
+CREATE TRIGGER trg_customer_accounts_change_xid
+  BEFORE INSERT OR UPDATE ON pos.customer_accounts
+  FOR EACH ROW EXECUTE FUNCTION pos.touch_change_xid();
+
+DROP TRIGGER IF EXISTS trg_customers_change_xid ON pos.customers;
+CREATE TRIGGER trg_customers_change_xid
+  BEFORE INSERT OR UPDATE ON pos.customers
+  FOR EACH ROW EXECUTE FUNCTION pos.touch_change_xid();
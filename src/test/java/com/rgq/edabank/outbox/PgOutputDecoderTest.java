@@ -0,0 +1,123 @@
+package com.rgq.edabank.outbox;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class PgOutputDecoderTest {
+
+    private final PgOutputDecoder decoder = new PgOutputDecoder();
+
+    @Test
+    void decodesBeginAndCommitLsn() throws IOException {
+        PgOutputDecoder.Message begin = decoder.decode(message(out -> {
+            out.writeByte('B');
+            out.writeLong(0x16B3748L);
+            out.writeLong(0L);
+            out.writeInt(42);
+        }));
+        assertThat(begin.kind).isEqualTo(PgOutputDecoder.Kind.BEGIN);
+        assertThat(begin.lsn).isEqualTo(0x16B3748L);
+
+        PgOutputDecoder.Message commit = decoder.decode(message(out -> {
+            out.writeByte('C');
+            out.writeByte(0);
+            out.writeLong(0x16B3748L);
+            out.writeLong(0x16B3780L);
+            out.writeLong(0L);
+        }));
+        assertThat(commit.kind).isEqualTo(PgOutputDecoder.Kind.COMMIT);
+        assertThat(commit.lsn).isEqualTo(0x16B3748L);
+    }
+
+    @Test
+    void decodesInsertAgainstItsRelation() throws IOException {
+        assertThat(decoder.decode(relation(16385, "pos", "outbox", "id", "type", "aggregate_id", "payload", "sent")).kind)
+                .isEqualTo(PgOutputDecoder.Kind.OTHER);
+
+        PgOutputDecoder.Message insert = decoder.decode(message(out -> {
+            out.writeByte('I');
+            out.writeInt(16385);
+            out.writeByte('N');
+            out.writeShort(5);
+            text(out, "7");
+            text(out, "payments.events");
+            text(out, "p-1");
+            text(out, "{\"id\":\"p-1\",\"amount\":12.5,\"note\":\"año\"}");
+            out.writeByte('n');
+        }));
+
+        assertThat(insert.kind).isEqualTo(PgOutputDecoder.Kind.INSERT);
+        assertThat(insert.schema).isEqualTo("pos");
+        assertThat(insert.table).isEqualTo("outbox");
+        assertThat(insert.values)
+                .containsEntry("id", "7")
+                .containsEntry("type", "payments.events")
+                .containsEntry("aggregate_id", "p-1")
+                .containsEntry("payload", "{\"id\":\"p-1\",\"amount\":12.5,\"note\":\"año\"}")
+                .containsEntry("sent", null);
+    }
+
+    @Test
+    void rejectsInsertForUnknownRelation() {
+        assertThatThrownBy(() -> decoder.decode(message(out -> {
+            out.writeByte('I');
+            out.writeInt(99);
+            out.writeByte('N');
+            out.writeShort(0);
+        }))).isInstanceOf(IllegalStateException.class);
+    }
+
+    @Test
+    void ignoresOtherMessages() throws IOException {
+        assertThat(decoder.decode(message(out -> out.writeByte('Y'))).kind).isEqualTo(PgOutputDecoder.Kind.OTHER);
+    }
+
+    private static ByteBuffer relation(int relId, String schema, String table, String... columns) throws IOException {
+        return message(out -> {
+            out.writeByte('R');
+            out.writeInt(relId);
+            cstring(out, schema);
+            cstring(out, table);
+            out.writeByte('d');
+            out.writeShort(columns.length);
+            for (String column : columns) {
+                out.writeByte(0);
+                cstring(out, column);
+                out.writeInt(25);
+                out.writeInt(-1);
+            }
+        });
+    }
+
+    private interface Writer {
+        void write(DataOutputStream out) throws IOException;
+    }
+
+    private static ByteBuffer message(Writer writer) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            writer.write(out);
+        }
+        return ByteBuffer.wrap(bytes.toByteArray());
+    }
+
+    private static void cstring(DataOutputStream out, String value) throws IOException {
+        out.write(value.getBytes(StandardCharsets.UTF_8));
+        out.writeByte(0);
+    }
+
+    private static void text(DataOutputStream out, String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeByte('t');
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+}
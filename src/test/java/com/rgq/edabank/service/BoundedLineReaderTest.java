@@ -0,0 +1,71 @@
+package com.rgq.edabank.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class BoundedLineReaderTest {
+
+    @Test
+    void splitsLinesAndStripsCarriageReturns() throws IOException {
+        NdjsonIngestService.BoundedLineReader reader = new NdjsonIngestService.BoundedLineReader(
+                new StringReader("{\"a\":1}\r\n\n{\"b\":2}"), 16);
+        assertThat(reader.readLine()).isEqualTo("{\"a\":1}");
+        assertThat(reader.overflowed()).isFalse();
+        assertThat(reader.readLine()).isEmpty();
+        assertThat(reader.readLine()).isEqualTo("{\"b\":2}");
+        assertThat(reader.readLine()).isNull();
+    }
+
+    @Test
+    void acceptsLineOfExactlyMaxChars() throws IOException {
+        NdjsonIngestService.BoundedLineReader reader = new NdjsonIngestService.BoundedLineReader(
+                new StringReader("12345\r\n123456\n"), 5);
+        assertThat(reader.readLine()).isEqualTo("12345");
+        assertThat(reader.overflowed()).isFalse();
+        assertThat(reader.readLine()).isEmpty();
+        assertThat(reader.overflowed()).isTrue();
+        assertThat(reader.readLine()).isNull();
+    }
+
+    @Test
+    void skipsOversizedLineWithoutBufferingItAndKeepsReading() throws IOException {
+        // 10 MB sin salto de línea: el lector solo debe pedir caracteres, nunca acumularlos
+        long huge = 10L * 1024 * 1024;
+        Reader body = new Reader() {
+            private long emitted;
+            private boolean tailDone;
+
+            @Override
+            public int read(char[] cbuf, int off, int len) {
+                if (emitted < huge) {
+                    int n = (int) Math.min(len, huge - emitted);
+                    java.util.Arrays.fill(cbuf, off, off + n, 'x');
+                    emitted += n;
+                    return n;
+                }
+                if (!tailDone) {
+                    String tail = "\n{\"ok\":true}\n";
+                    tail.getChars(0, tail.length(), cbuf, off);
+                    tailDone = true;
+                    return tail.length();
+                }
+                return -1;
+            }
+
+            @Override
+            public void close() {
+            }
+        };
+        NdjsonIngestService.BoundedLineReader reader = new NdjsonIngestService.BoundedLineReader(body, 1024);
+        assertThat(reader.readLine()).isEmpty();
+        assertThat(reader.overflowed()).isTrue();
+        assertThat(reader.readLine()).isEqualTo("{\"ok\":true}");
+        assertThat(reader.overflowed()).isFalse();
+        assertThat(reader.readLine()).isNull();
+    }
+}
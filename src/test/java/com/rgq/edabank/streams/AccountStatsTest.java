@@ -0,0 +1,76 @@
+package com.rgq.edabank.streams;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+class AccountStatsTest {
+
+    @Test
+    void matchesTheTwoPassMeanAndSampleStdDev() {
+        double[] amounts = {12.5, 100.0, 7.25, 980.0, 43.0, 43.0, 0.0, 310.75};
+        AccountStats stats = new AccountStats();
+        for (double a : amounts) {
+            stats.add(a);
+        }
+        double mean = 0;
+        for (double a : amounts) {
+            mean += a;
+        }
+        mean /= amounts.length;
+        double ss = 0;
+        for (double a : amounts) {
+            ss += (a - mean) * (a - mean);
+        }
+        assertThat(stats.getCount()).isEqualTo(amounts.length);
+        assertThat(stats.getMean()).isCloseTo(mean, within(1e-9));
+        assertThat(stats.getStdDev()).isCloseTo(Math.sqrt(ss / (amounts.length - 1)), within(1e-9));
+    }
+
+    @Test
+    void stdDevIsZeroBelowTwoSamples() {
+        AccountStats stats = new AccountStats();
+        assertThat(stats.getStdDev()).isZero();
+        stats.add(500.0);
+        assertThat(stats.getMean()).isEqualTo(500.0);
+        assertThat(stats.getStdDev()).isZero();
+        stats.add(500.0);
+        assertThat(stats.getStdDev()).isZero();
+    }
+
+    @Test
+    void staysStableWithALargeOffset() {
+        // La fórmula ingenua (suma de cuadrados) pierde toda la precisión con importes grandes y casi iguales
+        AccountStats stats = new AccountStats();
+        Random random = new Random(42);
+        double offset = 1e9;
+        int n = 100_000;
+        for (int i = 0; i < n; i++) {
+            stats.add(offset + (random.nextBoolean() ? 1.0 : -1.0));
+        }
+        assertThat(stats.getMean()).isCloseTo(offset, within(0.05));
+        assertThat(stats.getStdDev()).isCloseTo(1.0, within(1e-3));
+    }
+
+    @Test
+    void serdeRoundTripKeepsTheRunningState() {
+        AccountStats.AccountStatsSerde serde = new AccountStats.AccountStatsSerde();
+        AccountStats stats = new AccountStats();
+        stats.add(10.0);
+        stats.add(30.0);
+        byte[] bytes = serde.serializer().serialize("account-stats-store-changelog", stats);
+        assertThat(bytes).hasSize(24);
+
+        AccountStats restored = serde.deserializer().deserialize("account-stats-store-changelog", bytes);
+        restored.add(50.0);
+        stats.add(50.0);
+        assertThat(restored.getCount()).isEqualTo(3);
+        assertThat(restored.getMean()).isEqualTo(stats.getMean());
+        assertThat(restored.getStdDev()).isEqualTo(stats.getStdDev());
+        assertThat(serde.serializer().serialize("t", null)).isNull();
+        assertThat(serde.deserializer().deserialize("t", null)).isNull();
+    }
+}
@@ -0,0 +1,45 @@
+package com.rgq.edabank.streams;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class AlertAggregateSerdeTest {
+
+    private final AlertAggregate.AlertAggregateSerde serde = new AlertAggregate.AlertAggregateSerde();
+
+    private AlertAggregate roundTrip(AlertAggregate aggregate) {
+        return serde.deserializer().deserialize("alert-suppression-store-changelog",
+                serde.serializer().serialize("alert-suppression-store-changelog", aggregate));
+    }
+
+    @Test
+    void roundTripsAccumulatedState() {
+        AlertAggregate aggregate = new AlertAggregate(1_000L, 50.0, "payment", null);
+        aggregate.add(3_000L, 75.5, "transfer", "{\"id\":\"acc-ñ\"}");
+        aggregate.add(2_000L, 10.0, "payment", null);
+
+        AlertAggregate restored = roundTrip(aggregate);
+        assertThat(restored.getFirstSeen()).isEqualTo(1_000L);
+        assertThat(restored.getLastSeen()).isEqualTo(3_000L);
+        assertThat(restored.getCount()).isEqualTo(3);
+        assertThat(restored.getMaxAmount()).isEqualTo(75.5);
+        assertThat(restored.getSourceType()).isEqualTo("payment");
+        // Un perfil null no pisa el último conocido
+        assertThat(restored.getAccountProfile()).isEqualTo("{\"id\":\"acc-ñ\"}");
+    }
+
+    @Test
+    void keepsNullAndEmptyStringsApart() {
+        AlertAggregate restored = roundTrip(new AlertAggregate(5L, 1.0, null, ""));
+        assertThat(restored.getSourceType()).isNull();
+        assertThat(restored.getAccountProfile()).isEmpty();
+        assertThat(restored.getCount()).isEqualTo(1);
+    }
+
+    @Test
+    void nullStaysNull() {
+        assertThat(serde.serializer().serialize("t", null)).isNull();
+        assertThat(serde.deserializer().deserialize("t", null)).isNull();
+    }
+}
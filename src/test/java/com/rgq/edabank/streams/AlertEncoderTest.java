@@ -0,0 +1,46 @@
+package com.rgq.edabank.streams;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class AlertEncoderTest {
+
+    private final ObjectMapper mapper = new ObjectMapper();
+
+    private static FinancialEvent payment(double amount) {
+        return new FinancialEvent("p-1", "payment", amount, "acc-1", "EUR", null);
+    }
+
+    @Test
+    void finiteAmountsAreWrittenAsNumbers() throws Exception {
+        JsonNode alert = mapper.readTree(AlertEncoder.thresholdExceeded(payment(1500.5), 1000.0, List.of()));
+        assertThat(alert.get("amount").asDouble()).isEqualTo(1500.5);
+        assertThat(alert.get("threshold").asDouble()).isEqualTo(1000.0);
+    }
+
+    @Test
+    void nonFiniteNumbersAreWrittenAsNull() throws Exception {
+        // ObjectMapper rechaza NaN/Infinity sin comillas: si el JSON se lee, el encoder no los escribió
+        JsonNode threshold = mapper.readTree(AlertEncoder.thresholdExceeded(payment(Double.NaN), Double.POSITIVE_INFINITY, List.of()));
+        assertThat(threshold.get("amount").isNull()).isTrue();
+        assertThat(threshold.get("threshold").isNull()).isTrue();
+
+        JsonNode anomaly = mapper.readTree(AlertEncoder.anomalyScore(payment(Double.NEGATIVE_INFINITY), Double.NaN, 10.0, 0.0));
+        assertThat(anomaly.get("amount").isNull()).isTrue();
+        assertThat(anomaly.get("zScore").isNull()).isTrue();
+        assertThat(anomaly.get("mean").asDouble()).isEqualTo(10.0);
+
+        JsonNode rule = mapper.readTree(AlertEncoder.ruleFired("big", "p-1", Double.NaN, "msg", List.of("big")));
+        assertThat(rule.get("amount").isNull()).isTrue();
+        JsonNode velocity = mapper.readTree(AlertEncoder.velocityExceeded("acc-1", 3, Double.POSITIVE_INFINITY, 0, 1));
+        assertThat(velocity.get("amount").isNull()).isTrue();
+        JsonNode summary = mapper.readTree(AlertEncoder.aggregated("threshold_exceeded", "payment", "acc-1", 2, Double.NaN, 0, 1, null));
+        assertThat(summary.get("maxAmount").isNull()).isTrue();
+        assertThat(mapper.readTree(AlertEncoder.event(payment(Double.NaN))).get("amount").isNull()).isTrue();
+    }
+}
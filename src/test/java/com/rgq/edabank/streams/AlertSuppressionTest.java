@@ -0,0 +1,192 @@
+package com.rgq.edabank.streams;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.kafka.common.serialization.Serdes;
+import org.apache.kafka.common.serialization.StringDeserializer;
+import org.apache.kafka.common.serialization.StringSerializer;
+import org.apache.kafka.streams.KeyValue;
+import org.apache.kafka.streams.StreamsBuilder;
+import org.apache.kafka.streams.StreamsConfig;
+import org.apache.kafka.streams.TestInputTopic;
+import org.apache.kafka.streams.TestOutputTopic;
+import org.apache.kafka.streams.TopologyTestDriver;
+import org.apache.kafka.streams.kstream.Consumed;
+import org.apache.kafka.streams.kstream.Produced;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.Properties;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class AlertSuppressionTest {
+
+    private static final long WINDOW_MS = 60_000;
+    private static final long FLUSH_MS = 1_000;
+    private static final long T0 = 1_700_000_000_000L;
+
+    private final ObjectMapper mapper = new ObjectMapper();
+
+    @TempDir
+    Path stateDir;
+
+    private TopologyTestDriver driver;
+    private TestInputTopic<String, String> in;
+    private TestOutputTopic<String, String> out;
+
+    @BeforeEach
+    void setUp() {
+        AlertSuppression suppression = new AlertSuppression(new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(suppression, "windowMs", WINDOW_MS);
+        ReflectionTestUtils.setField(suppression, "flushIntervalMs", FLUSH_MS);
+
+        StreamsBuilder builder = new StreamsBuilder();
+        suppression.suppress(builder, builder.stream("alerts", Consumed.with(Serdes.String(), Serdes.String())))
+                .to("out", Produced.with(Serdes.String(), Serdes.String()));
+
+        Properties props = new Properties();
+        props.put(StreamsConfig.APPLICATION_ID_CONFIG, "alert-suppression-test");
+        props.put(StreamsConfig.BOOTSTRAP_SERVERS_CONFIG, "dummy:9092");
+        props.put(StreamsConfig.STATE_DIR_CONFIG, stateDir.toString());
+        driver = new TopologyTestDriver(builder.build(), props);
+        in = driver.createInputTopic("alerts", new StringSerializer(), new StringSerializer());
+        out = driver.createOutputTopic("out", new StringDeserializer(), new StringDeserializer());
+    }
+
+    @AfterEach
+    void tearDown() {
+        driver.close();
+    }
+
+    private static String threshold(double amount) {
+        return "{\"alert\":\"threshold_exceeded\",\"type\":\"payment\",\"amount\":" + amount + ",\"threshold\":1000.0}";
+    }
+
+    // Las ventanas se cierran en tiempo de stream: una alerta de otra cuenta lo hace avanzar
+    private void advanceStreamTime(long ts) {
+        in.pipeInput("other", threshold(1.0), ts);
+    }
+
+    private List<KeyValue<String, String>> readAccount(String account) {
+        return out.readKeyValuesToList().stream().filter(kv -> account.equals(kv.key)).toList();
+    }
+
+    @Test
+    void forwardsTheFirstAndSummarizesRepeatsWhenTheWindowCloses() throws Exception {
+        in.pipeInput("acc-1", threshold(1500.0), T0);
+        in.pipeInput("acc-1", threshold(9000.0), T0 + 10);
+        in.pipeInput("acc-1", threshold(2000.0), T0 + 20);
+        List<KeyValue<String, String>> first = out.readKeyValuesToList();
+        assertThat(first).hasSize(1);
+        assertThat(first.get(0).value).isEqualTo(threshold(1500.0));
+
+        advanceStreamTime(T0 + WINDOW_MS + FLUSH_MS);
+        List<KeyValue<String, String>> summaries = readAccount("acc-1");
+        assertThat(summaries).hasSize(1);
+        assertThat(summaries.get(0).key).isEqualTo("acc-1");
+        JsonNode summary = mapper.readTree(summaries.get(0).value);
+        assertThat(summary.get("alert").asText()).isEqualTo("threshold_exceeded");
+        assertThat(summary.get("type").asText()).isEqualTo("payment");
+        assertThat(summary.get("aggregated").asBoolean()).isTrue();
+        assertThat(summary.get("count").asLong()).isEqualTo(3);
+        assertThat(summary.get("maxAmount").asDouble()).isEqualTo(9000.0);
+        assertThat(summary.get("firstSeen").asLong()).isEqualTo(T0);
+        assertThat(summary.get("lastSeen").asLong()).isEqualTo(T0 + 20);
+
+        // La ventana se cerró: la siguiente alerta vuelve a pasar sin retraso
+        in.pipeInput("acc-1", threshold(1200.0), T0 + WINDOW_MS + FLUSH_MS + 5);
+        assertThat(readAccount("acc-1")).extracting(kv -> kv.value).containsExactly(threshold(1200.0));
+    }
+
+    @Test
+    void singleAlertProducesNoSummary() {
+        in.pipeInput("acc-1", threshold(1500.0), T0);
+        advanceStreamTime(T0 + WINDOW_MS + FLUSH_MS);
+        assertThat(readAccount("acc-1")).extracting(kv -> kv.value).containsExactly(threshold(1500.0));
+    }
+
+    @Test
+    void accountsAndAlertTypesAreSuppressedIndependently() {
+        String velocity = "{\"alert\":\"velocity_exceeded\",\"type\":\"velocity\",\"accountId\":\"acc-1\",\"count\":12}";
+        in.pipeInput("acc-1", threshold(1500.0), T0);
+        in.pipeInput("acc-2", threshold(1500.0), T0 + 1);
+        in.pipeInput("acc-1", velocity, T0 + 2);
+        in.pipeInput("acc-1", velocity, T0 + 3);
+        assertThat(out.readKeyValuesToList()).containsExactly(
+                KeyValue.pair("acc-1", threshold(1500.0)),
+                KeyValue.pair("acc-2", threshold(1500.0)),
+                KeyValue.pair("acc-1", velocity));
+    }
+
+    @Test
+    void alertAfterTheWindowFlushesThePreviousSummaryFirst() throws Exception {
+        in.pipeInput("acc-1", threshold(1500.0), T0);
+        in.pipeInput("acc-1", threshold(1600.0), T0 + 10);
+        out.readValuesToList();
+
+        // Sin punctuation de por medio: el cierre lo provoca la alerta fuera de la ventana
+        in.pipeInput("acc-1", threshold(1700.0), T0 + WINDOW_MS);
+        List<String> values = out.readValuesToList();
+        assertThat(values).hasSize(2);
+        assertThat(mapper.readTree(values.get(0)).get("count").asLong()).isEqualTo(2);
+        assertThat(values.get(1)).isEqualTo(threshold(1700.0));
+    }
+
+    @Test
+    void summaryKeepsTheAccountProfile() throws Exception {
+        String profile = "{\"id\":\"acc-1\",\"customerId\":\"c-1\",\"firstName\":\"Ana\",\"lastName\":\"Ruiz\",\"businessId\":\"b-1\"}";
+        String enriched = "{\"alert\":\"threshold_exceeded\",\"type\":\"payment\",\"amount\":1500.0,\"account\":" + profile + "}";
+        in.pipeInput("acc-1", enriched, T0);
+        in.pipeInput("acc-1", enriched, T0 + 1);
+        advanceStreamTime(T0 + WINDOW_MS + FLUSH_MS);
+        List<KeyValue<String, String>> values = readAccount("acc-1");
+        assertThat(values).hasSize(2);
+        assertThat(mapper.readTree(values.get(1).value).get("account")).isEqualTo(mapper.readTree(profile));
+    }
+
+    @Test
+    void wallClockAloneDoesNotCloseAWindow() {
+        in.pipeInput("acc-1", threshold(1500.0), T0);
+        in.pipeInput("acc-1", threshold(1600.0), T0 + 10);
+        out.readValuesToList();
+        // El tiempo de evento no ha pasado el cierre: no hay resumen aunque avance el reloj
+        driver.advanceWallClockTime(Duration.ofMillis(WINDOW_MS * 10));
+        advanceStreamTime(T0 + WINDOW_MS - 1);
+        assertThat(readAccount("acc-1")).isEmpty();
+        advanceStreamTime(T0 + WINDOW_MS + FLUSH_MS);
+        assertThat(readAccount("acc-1")).hasSize(1);
+    }
+
+    @Test
+    void windowsCloseInOrderOfTheirFirstAlert() throws Exception {
+        in.pipeInput("acc-2", threshold(1500.0), T0 + 5_000);
+        in.pipeInput("acc-2", threshold(1500.0), T0 + 5_001);
+        in.pipeInput("acc-1", threshold(1500.0), T0);
+        in.pipeInput("acc-1", threshold(1500.0), T0 + 1);
+        out.readValuesToList();
+        // Solo la ventana de acc-1 ha cerrado
+        advanceStreamTime(T0 + WINDOW_MS + FLUSH_MS);
+        List<KeyValue<String, String>> closed = out.readKeyValuesToList().stream()
+                .filter(kv -> !"other".equals(kv.key)).toList();
+        assertThat(closed).extracting(kv -> kv.key).containsExactly("acc-1");
+        advanceStreamTime(T0 + 5_000 + WINDOW_MS + FLUSH_MS);
+        assertThat(readAccount("acc-2")).hasSize(1);
+    }
+
+    @Test
+    void unparseableOrKeylessAlertsPassThrough() {
+        in.pipeInput("acc-1", "not json", T0);
+        in.pipeInput("acc-1", "not json", T0 + 1);
+        in.pipeInput(null, threshold(1500.0), T0 + 2);
+        in.pipeInput(null, threshold(1500.0), T0 + 3);
+        assertThat(out.readValuesToList()).hasSize(4);
+    }
+}
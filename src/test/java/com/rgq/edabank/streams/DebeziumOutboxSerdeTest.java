@@ -0,0 +1,51 @@
+package com.rgq.edabank.streams;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class DebeziumOutboxSerdeTest {
+
+    private final DebeziumOutboxSerde serde = new DebeziumOutboxSerde();
+
+    private FinancialEvent read(String json) {
+        return serde.deserializer().deserialize("dbz-outbox.pos.outbox", json == null ? null : json.getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void decodesSchemaWrappedEnvelopeWithStringPayload() {
+        FinancialEvent e = read("{\"schema\":{\"type\":\"struct\",\"fields\":[{\"field\":\"after\"}]},"
+                + "\"payload\":{\"before\":null,\"after\":{\"id\":7,\"type\":\"transfers.events\","
+                + "\"payload\":\"{\\\"id\\\":\\\"t-1\\\",\\\"type\\\":\\\"transfer\\\",\\\"amount\\\":250.5,\\\"from\\\":\\\"a\\\",\\\"to\\\":\\\"b\\\"}\","
+                + "\"sent\":false},\"source\":{\"table\":\"outbox\"},\"op\":\"c\",\"ts_ms\":1}}");
+        assertThat(e.getId()).isEqualTo("t-1");
+        assertThat(e.getType()).isEqualTo("transfer");
+        assertThat(e.getAmount()).isEqualTo(250.5);
+        assertThat(e.getAccountId()).isEqualTo("a");
+        assertThat(e.getCounterpartyId()).isEqualTo("b");
+    }
+
+    @Test
+    void decodesEmbeddedObjectPayloadAndKeepsReadingTheRow() {
+        // El payload embebido se lee hasta su cierre: los campos posteriores de la fila no se confunden con él
+        FinancialEvent e = read("{\"before\":null,\"after\":{\"id\":8,"
+                + "\"payload\":{\"id\":\"p-1\",\"type\":\"payment\",\"amount\":12,\"currency\":\"EUR\",\"accountId\":\"acc\","
+                + "\"meta\":{\"to\":\"x\"},\"extra\":1},\"aggregate_id\":\"p-1\"},\"op\":\"c\"}");
+        assertThat(e.getId()).isEqualTo("p-1");
+        assertThat(e.getCurrency()).isEqualTo("EUR");
+        assertThat(e.getAccountId()).isEqualTo("acc");
+        assertThat(e.getCounterpartyId()).isNull();
+    }
+
+    @Test
+    void dropsNonCreatesTombstonesAndGarbage() {
+        assertThat(read("{\"after\":{\"payload\":{\"id\":\"p\"}},\"op\":\"u\"}")).isNull();
+        assertThat(read("{\"op\":\"d\",\"after\":{\"payload\":{\"id\":\"p\"}}}")).isNull();
+        assertThat(read("{\"before\":{\"id\":1},\"after\":null,\"op\":\"c\"}")).isNull();
+        assertThat(read(null)).isNull();
+        assertThat(read("")).isNull();
+        assertThat(read("not json")).isNull();
+    }
+}
@@ -0,0 +1,143 @@
+package com.rgq.edabank.streams;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.kafka.common.serialization.Serdes;
+import org.apache.kafka.common.serialization.StringDeserializer;
+import org.apache.kafka.common.serialization.StringSerializer;
+import org.apache.kafka.streams.StreamsBuilder;
+import org.apache.kafka.streams.StreamsConfig;
+import org.apache.kafka.streams.TestInputTopic;
+import org.apache.kafka.streams.TestOutputTopic;
+import org.apache.kafka.streams.TopologyTestDriver;
+import org.apache.kafka.streams.kstream.Consumed;
+import org.apache.kafka.streams.kstream.KStream;
+import org.apache.kafka.streams.kstream.Produced;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.file.Path;
+import java.util.Properties;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class EventDeduplicatorTest {
+
+    private static final long RETENTION_MS = 60_000;
+    private static final long T0 = 1_700_000_000_000L;
+
+    @TempDir
+    Path stateDir;
+
+    private SimpleMeterRegistry registry;
+    private TopologyTestDriver driver;
+    private TestInputTopic<String, String> payments;
+    private TestInputTopic<String, String> transfers;
+    private TestOutputTopic<String, String> out;
+
+    @BeforeEach
+    void setUp() {
+        registry = new SimpleMeterRegistry();
+        EventDeduplicator dedup = new EventDeduplicator(registry);
+        ReflectionTestUtils.setField(dedup, "retentionMs", RETENTION_MS);
+
+        StreamsBuilder builder = new StreamsBuilder();
+        FinancialEventSerde serde = new FinancialEventSerde();
+        KStream<String, FinancialEvent> merged = builder.stream("payments.events", Consumed.with(Serdes.String(), serde))
+                .merge(builder.stream("transfers.events", Consumed.with(Serdes.String(), serde)));
+        dedup.dedup(builder, merged).to("out", Produced.with(Serdes.String(), serde));
+
+        Properties props = new Properties();
+        props.put(StreamsConfig.APPLICATION_ID_CONFIG, "event-dedup-test");
+        props.put(StreamsConfig.BOOTSTRAP_SERVERS_CONFIG, "dummy:9092");
+        props.put(StreamsConfig.STATE_DIR_CONFIG, stateDir.toString());
+        driver = new TopologyTestDriver(builder.build(), props);
+        payments = driver.createInputTopic("payments.events", new StringSerializer(), new StringSerializer());
+        transfers = driver.createInputTopic("transfers.events", new StringSerializer(), new StringSerializer());
+        out = driver.createOutputTopic("out", new StringDeserializer(), new StringDeserializer());
+    }
+
+    @AfterEach
+    void tearDown() {
+        driver.close();
+    }
+
+    private static String payment(String id) {
+        return "{\"id\":\"" + id + "\",\"type\":\"payment\",\"amount\":10,\"currency\":\"EUR\",\"accountId\":\"acc\"}";
+    }
+
+    private double count(String result) {
+        return registry.get("streams.dedup.events").tag("result", result).counter().count();
+    }
+
+    @Test
+    void dropsRedeliveriesWithinTheRetention() {
+        payments.pipeInput("p-1", payment("p-1"), T0);
+        payments.pipeInput("p-1", payment("p-1"), T0 + 1_000);
+        payments.pipeInput("p-2", payment("p-2"), T0 + 2_000);
+        payments.pipeInput("p-1", payment("p-1"), T0 + RETENTION_MS);
+        assertThat(out.readKeysToList()).containsExactly("p-1", "p-2");
+        assertThat(count("unique")).isEqualTo(2.0);
+        assertThat(count("duplicate")).isEqualTo(2.0);
+    }
+
+    @Test
+    void catchesOutOfOrderRedeliveries() {
+        payments.pipeInput("p-1", payment("p-1"), T0 + 5_000);
+        payments.pipeInput("p-1", payment("p-1"), T0);
+        assertThat(out.readKeysToList()).containsExactly("p-1");
+    }
+
+    @Test
+    void letsTheEventThroughAgainAfterTheRetention() {
+        payments.pipeInput("p-1", payment("p-1"), T0);
+        payments.pipeInput("p-1", payment("p-1"), T0 + RETENTION_MS + 1);
+        assertThat(out.readKeysToList()).containsExactly("p-1", "p-1");
+    }
+
+    @Test
+    void sameKeyOnAnotherTopicIsADifferentEvent() {
+        payments.pipeInput("42", payment("42"), T0);
+        transfers.pipeInput("42", "{\"id\":\"42\",\"type\":\"transfer\",\"amount\":5,\"from\":\"a\",\"to\":\"b\"}", T0);
+        assertThat(out.readKeysToList()).containsExactly("42", "42");
+    }
+
+    @Test
+    void withoutKeyTheEventIdIsUsed() {
+        payments.pipeInput(null, payment("p-9"), T0);
+        payments.pipeInput(null, payment("p-9"), T0 + 1);
+        assertThat(out.readValuesToList()).hasSize(1);
+    }
+
+    @Test
+    void distinctEventsOfTheSameAggregateAreKept() {
+        // El outbox usa el agregado como clave: dos eventos distintos de la misma cuenta comparten clave
+        payments.pipeInput("acc", payment("p-1"), T0);
+        payments.pipeInput("acc", payment("p-2"), T0 + 1);
+        assertThat(out.readValuesToList()).hasSize(2);
+    }
+
+    @Test
+    void sameEventUnderAnotherKeyIsADuplicate() {
+        payments.pipeInput("row-1", payment("p-1"), T0);
+        payments.pipeInput("row-2", payment("p-1"), T0 + 1);
+        assertThat(out.readKeysToList()).containsExactly("row-1");
+    }
+
+    @Test
+    void undecodableRecordsFallBackToTheKey() {
+        payments.pipeInput("k-1", "not json", T0);
+        payments.pipeInput("k-1", "not json", T0 + 1);
+        assertThat(out.readValuesToList()).hasSize(1);
+    }
+
+    @Test
+    void recordsWithoutIdentityPassThrough() {
+        // Sin clave y con payload inválido no hay identidad: se reenvía y el filtro ingress-valid lo descarta
+        payments.pipeInput(null, "not json", T0);
+        payments.pipeInput(null, "not json", T0 + 1);
+        assertThat(out.readValuesToList()).hasSize(2);
+    }
+}
@@ -0,0 +1,76 @@
+package com.rgq.edabank.streams;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.apache.kafka.common.serialization.Deserializer;
+import org.apache.kafka.common.serialization.StringDeserializer;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Micro-benchmark de la decodificación de payments.events: el camino anterior (String + dos readTree,
+ * uno en filter y otro en mapValues) frente a FinancialEventSerde. Mide registros/s y bytes asignados
+ * por registro en el hilo actual y deja el resultado en el log del test. No corre con el build normal:
+ * mvn -B test -Dtest=FinancialEventDecodeBenchmark -Dbenchmark=true
+ */
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+class FinancialEventDecodeBenchmark {
+    private static final Logger log = LoggerFactory.getLogger(FinancialEventDecodeBenchmark.class);
+
+    private static final int WARMUP = 200_000;
+    private static final int RECORDS = 1_000_000;
+
+    private static final byte[] PAYMENT = ("{\"id\":\"4f9c2a0e-6c1b-4f51-9d55-0f7f3d1f2b11\",\"type\":\"payment\","
+            + "\"amount\":1534.75,\"currency\":\"EUR\",\"accountId\":\"ES7620770024003102575766\","
+            + "\"merchant\":{\"id\":\"m-1029\",\"name\":\"Terminal 12\",\"mcc\":\"5411\",\"country\":\"ES\"},"
+            + "\"items\":[{\"sku\":\"A-1\",\"qty\":2,\"price\":500.0},{\"sku\":\"B-7\",\"qty\":1,\"price\":534.75}],"
+            + "\"createdAt\":\"2024-05-01T10:15:30Z\"}").getBytes(StandardCharsets.UTF_8);
+
+    private interface Decoder {
+        double decode(byte[] data) throws Exception;
+    }
+
+    @Test
+    void compareDecoders() throws Exception {
+        ObjectMapper mapper = new ObjectMapper();
+        StringDeserializer strings = new StringDeserializer();
+        Decoder before = data -> {
+            String v = strings.deserialize("payments.events", data);
+            JsonNode filterNode = mapper.readTree(v);
+            double amount = filterNode.has("amount") ? filterNode.get("amount").asDouble(0.0) : 0.0;
+            JsonNode mapNode = mapper.readTree(v);
+            String type = mapNode.has("type") ? mapNode.get("type").asText("unknown") : "unknown";
+            return amount + type.length();
+        };
+        Deserializer<FinancialEvent> serde = new FinancialEventSerde().deserializer();
+        Decoder afterFullScan = data -> serde.deserialize("transfers.events", data).getAmount();
+        Decoder after = data -> serde.deserialize("payments.events", data).getAmount();
+
+        run("before (String + 2x readTree)", before);
+        run("after, full scan", afterFullScan);
+        run("after, payment early exit", after);
+    }
+
+    private static void run(String name, Decoder decoder) throws Exception {
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long thread = Thread.currentThread().getId();
+        double sink = 0;
+        for (int i = 0; i < WARMUP; i++) {
+            sink += decoder.decode(PAYMENT);
+        }
+        long allocated = threads.getThreadAllocatedBytes(thread);
+        long started = System.nanoTime();
+        for (int i = 0; i < RECORDS; i++) {
+            sink += decoder.decode(PAYMENT);
+        }
+        long elapsed = System.nanoTime() - started;
+        allocated = threads.getThreadAllocatedBytes(thread) - allocated;
+        log.info(String.format("%-32s %,12.0f records/s %,8d B/record (sink %.0f)",
+                name, RECORDS / (elapsed / 1e9), allocated / RECORDS, sink));
+    }
+}
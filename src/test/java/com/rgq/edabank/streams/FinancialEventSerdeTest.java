@@ -0,0 +1,75 @@
+package com.rgq.edabank.streams;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class FinancialEventSerdeTest {
+
+    private final FinancialEventSerde serde = new FinancialEventSerde();
+
+    private FinancialEvent read(String topic, String json) {
+        return serde.deserializer().deserialize(topic, json.getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void decodesPaymentAndSkipsNestedValues() {
+        FinancialEvent e = read("payments.events",
+                "{\"meta\":{\"amount\":1,\"id\":\"nested\"},\"id\":\"p-1\",\"type\":\"payment\",\"amount\":1234.5,"
+                        + "\"currency\":\"EUR\",\"accountId\":\"acc-1\",\"items\":[1,2,3]}");
+        assertThat(e.getId()).isEqualTo("p-1");
+        assertThat(e.getType()).isEqualTo("payment");
+        assertThat(e.getAmount()).isEqualTo(1234.5);
+        assertThat(e.getCurrency()).isEqualTo("EUR");
+        assertThat(e.getAccountId()).isEqualTo("acc-1");
+        assertThat(e.getCounterpartyId()).isNull();
+    }
+
+    @Test
+    void paymentsStopAtTheLastPaymentField() {
+        // Tras los cinco campos de un pago el resto no se lee: un final corrupto no invalida el evento
+        FinancialEvent e = read("payments.events",
+                "{\"id\":\"p-1\",\"type\":\"payment\",\"amount\":5,\"currency\":\"EUR\",\"account_id\":\"acc-1\",\"x\":");
+        assertThat(e).isNotNull();
+        assertThat(e.getAccountId()).isEqualTo("acc-1");
+        // Fuera de payments.events se espera también la cuenta de destino y se sigue leyendo
+        assertThat(read("transfers.events",
+                "{\"id\":\"p-1\",\"type\":\"payment\",\"amount\":5,\"currency\":\"EUR\",\"account_id\":\"acc-1\",\"x\":")).isNull();
+    }
+
+    @Test
+    void decodesTransferAccounts() {
+        FinancialEvent e = read("transfers.events",
+                "{\"id\":\"t-1\",\"type\":\"transfer\",\"amount\":10,\"from\":\"a\",\"to\":\"b\"}");
+        assertThat(e.getAccountId()).isEqualTo("a");
+        assertThat(e.getCounterpartyId()).isEqualTo("b");
+        assertThat(e.getCurrency()).isNull();
+    }
+
+    @Test
+    void roundTripsThroughTheInternalFormat() {
+        FinancialEvent in = new FinancialEvent("t-\"1\"", "transfer", 99.25, "a", "USD", "b");
+        byte[] bytes = serde.serializer().serialize("events-by-account-repartition", in);
+        FinancialEvent out = serde.deserializer().deserialize("events-by-account-repartition", bytes);
+        assertThat(out.getId()).isEqualTo(in.getId());
+        assertThat(out.getType()).isEqualTo(in.getType());
+        assertThat(out.getAmount()).isEqualTo(in.getAmount());
+        assertThat(out.getAccountId()).isEqualTo(in.getAccountId());
+        assertThat(out.getCurrency()).isEqualTo(in.getCurrency());
+        assertThat(out.getCounterpartyId()).isEqualTo(in.getCounterpartyId());
+    }
+
+    @Test
+    void invalidPayloadsBecomeNull() {
+        assertThat(read("payments.events", "[1,2]")).isNull();
+        assertThat(read("payments.events", "not json")).isNull();
+        assertThat(serde.deserializer().deserialize("payments.events", null)).isNull();
+    }
+
+    @Test
+    void missingTypeDefaultsToUnknown() {
+        assertThat(read("payments.events", "{\"id\":\"p\",\"amount\":1}").getType()).isEqualTo("unknown");
+    }
+}
@@ -0,0 +1,134 @@
+package com.rgq.edabank.streams;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.rgq.streams.FraudDetectionProcessor;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.kafka.common.serialization.StringDeserializer;
+import org.apache.kafka.common.serialization.StringSerializer;
+import org.apache.kafka.streams.StreamsBuilder;
+import org.apache.kafka.streams.StreamsConfig;
+import org.apache.kafka.streams.TestInputTopic;
+import org.apache.kafka.streams.TestOutputTopic;
+import org.apache.kafka.streams.TopologyTestDriver;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/** Precedencia de umbrales de la GlobalKTable: cuenta > divisa > app.alerts.threshold. */
+class TopologyConfigThresholdTest {
+
+    private final ObjectMapper mapper = new ObjectMapper();
+
+    @TempDir
+    Path stateDir;
+
+    private TopologyTestDriver driver;
+    private TestInputTopic<String, String> payments;
+    private TestInputTopic<String, String> thresholds;
+    private TestOutputTopic<String, String> alerts;
+
+    @BeforeEach
+    void setUp() {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        // Sin @Value todas las etapas opcionales quedan desactivadas: solo se prueba la rama threshold-*
+        TopologyConfig config = new TopologyConfig(new VelocityAggregation(), new AnomalyScoring(), new TransferGraph(),
+                new EventDeduplicator(registry), new AlertSuppression(registry), new FraudDetectionProcessor(),
+                new AlertEnrichment());
+        ReflectionTestUtils.setField(config, "threshold", 10000.0);
+        StreamsBuilder builder = new StreamsBuilder();
+        config.kstream(builder);
+
+        Properties props = new Properties();
+        props.put(StreamsConfig.APPLICATION_ID_CONFIG, "topology-threshold-test");
+        props.put(StreamsConfig.BOOTSTRAP_SERVERS_CONFIG, "dummy:9092");
+        props.put(StreamsConfig.STATE_DIR_CONFIG, stateDir.toString());
+        driver = new TopologyTestDriver(builder.build(), props);
+        payments = driver.createInputTopic("payments.events", new StringSerializer(), new StringSerializer());
+        thresholds = driver.createInputTopic(TopologyConfig.THRESHOLDS_TOPIC, new StringSerializer(), new StringSerializer());
+        alerts = driver.createOutputTopic("alerts.suspect", new StringDeserializer(), new StringDeserializer());
+    }
+
+    @AfterEach
+    void tearDown() {
+        driver.close();
+    }
+
+    private void pay(String id, String account, String currency, double amount) {
+        payments.pipeInput(id, "{\"id\":\"" + id + "\",\"type\":\"payment\",\"amount\":" + amount
+                + ",\"currency\":\"" + currency + "\",\"accountId\":\"" + account + "\"}");
+    }
+
+    private List<JsonNode> readAlerts() throws Exception {
+        List<JsonNode> out = new ArrayList<>();
+        for (String value : alerts.readValuesToList()) {
+            out.add(mapper.readTree(value));
+        }
+        return out;
+    }
+
+    @Test
+    void usesTheDefaultThresholdWithoutOverrides() throws Exception {
+        pay("p-1", "acc-1", "EUR", 9999.0);
+        pay("p-2", "acc-1", "EUR", 10000.0);
+        List<JsonNode> out = readAlerts();
+        assertThat(out).hasSize(1);
+        assertThat(out.get(0).get("alert").asText()).isEqualTo("threshold_exceeded");
+        assertThat(out.get(0).get("amount").asDouble()).isEqualTo(10000.0);
+        assertThat(out.get(0).get("threshold").asDouble()).isEqualTo(10000.0);
+    }
+
+    @Test
+    void currencyOverridesTheDefault() throws Exception {
+        thresholds.pipeInput("currency:EUR", "1000");
+        pay("p-1", "acc-1", "EUR", 1500.0);
+        pay("p-2", "acc-1", "USD", 1500.0);
+        List<JsonNode> out = readAlerts();
+        assertThat(out).hasSize(1);
+        assertThat(out.get(0).get("threshold").asDouble()).isEqualTo(1000.0);
+    }
+
+    @Test
+    void accountOverridesCurrencyUntilItIsRemoved() throws Exception {
+        thresholds.pipeInput("currency:EUR", "1000");
+        thresholds.pipeInput("account:acc-1", "50000");
+        pay("p-1", "acc-1", "EUR", 20000.0);
+        assertThat(readAlerts()).isEmpty();
+
+        pay("p-2", "acc-1", "EUR", 60000.0);
+        List<JsonNode> out = readAlerts();
+        assertThat(out).hasSize(1);
+        assertThat(out.get(0).get("threshold").asDouble()).isEqualTo(50000.0);
+
+        // Tombstone: la cuenta vuelve al umbral de su divisa
+        thresholds.pipeInput("account:acc-1", null);
+        pay("p-3", "acc-1", "EUR", 20000.0);
+        out = readAlerts();
+        assertThat(out).hasSize(1);
+        assertThat(out.get(0).get("threshold").asDouble()).isEqualTo(1000.0);
+    }
+
+    @Test
+    void invalidOverrideFallsBackToTheDefault() throws Exception {
+        thresholds.pipeInput("account:acc-1", "not-a-number");
+        pay("p-1", "acc-1", "EUR", 12000.0);
+        List<JsonNode> out = readAlerts();
+        assertThat(out).hasSize(1);
+        assertThat(out.get(0).get("threshold").asDouble()).isEqualTo(10000.0);
+    }
+
+    @Test
+    void alertsAreKeyedByAccount() {
+        pay("p-1", "acc-9", "EUR", 20000.0);
+        assertThat(alerts.readKeyValue().key).isEqualTo("acc-9");
+    }
+}
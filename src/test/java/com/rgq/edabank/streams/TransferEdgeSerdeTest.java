@@ -0,0 +1,49 @@
+package com.rgq.edabank.streams;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TransferEdgeSerdeTest {
+
+    private final TransferEdge.TransferEdgeSerde serde = new TransferEdge.TransferEdgeSerde();
+
+    private TransferEdge roundTrip(TransferEdge edge) {
+        return serde.deserializer().deserialize("transfer-edges-by-account", serde.serializer().serialize("transfer-edges-by-account", edge));
+    }
+
+    @Test
+    void roundTripsEveryKind() {
+        TransferEdge in = roundTrip(TransferEdge.in("ES76-ñ"));
+        assertThat(in.getKind()).isEqualTo(TransferEdge.IN);
+        assertThat(in.getAccount()).isEqualTo("ES76-ñ");
+        assertThat(in.getVia()).isNull();
+
+        TransferEdge out = roundTrip(TransferEdge.out("b"));
+        assertThat(out.getKind()).isEqualTo(TransferEdge.OUT);
+        assertThat(out.getAccount()).isEqualTo("b");
+
+        TransferEdge path = roundTrip(TransferEdge.path("a", "b"));
+        assertThat(path.getKind()).isEqualTo(TransferEdge.PATH);
+        assertThat(path.getAccount()).isEqualTo("a");
+        assertThat(path.getVia()).isEqualTo("b");
+
+        String json = "{\"alert\":\"transfer_fan_out\",\"accountId\":\"a\"}";
+        TransferEdge alert = roundTrip(TransferEdge.alert(json));
+        assertThat(alert.getKind()).isEqualTo(TransferEdge.ALERT);
+        assertThat(alert.getAlert()).isEqualTo(json);
+    }
+
+    @Test
+    void keepsEmptyStringsDistinctFromNull() {
+        TransferEdge path = roundTrip(TransferEdge.path("", null));
+        assertThat(path.getAccount()).isEmpty();
+        assertThat(path.getVia()).isNull();
+    }
+
+    @Test
+    void nullStaysNull() {
+        assertThat(serde.serializer().serialize("t", null)).isNull();
+        assertThat(serde.deserializer().deserialize("t", null)).isNull();
+    }
+}
@@ -0,0 +1,165 @@
+package com.rgq.edabank.streams;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.apache.kafka.common.serialization.Serdes;
+import org.apache.kafka.common.serialization.StringDeserializer;
+import org.apache.kafka.common.serialization.StringSerializer;
+import org.apache.kafka.streams.StreamsBuilder;
+import org.apache.kafka.streams.StreamsConfig;
+import org.apache.kafka.streams.TestInputTopic;
+import org.apache.kafka.streams.TestOutputTopic;
+import org.apache.kafka.streams.TopologyTestDriver;
+import org.apache.kafka.streams.kstream.Consumed;
+import org.apache.kafka.streams.kstream.KStream;
+import org.apache.kafka.streams.kstream.Produced;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TransferGraphTest {
+
+    private static final long WINDOW_MS = 60_000;
+    private static final long T0 = 1_700_000_000_000L;
+
+    private final ObjectMapper mapper = new ObjectMapper();
+
+    @TempDir
+    Path stateDir;
+
+    private TransferGraph graph;
+    private TopologyTestDriver driver;
+    private TestInputTopic<String, String> transfers;
+    private TestOutputTopic<String, String> alerts;
+    private int seq;
+
+    @BeforeEach
+    void setUp() {
+        graph = new TransferGraph();
+        ReflectionTestUtils.setField(graph, "windowMs", WINDOW_MS);
+        ReflectionTestUtils.setField(graph, "fanOutMin", 3);
+        ReflectionTestUtils.setField(graph, "fanInMin", 3);
+        ReflectionTestUtils.setField(graph, "maxNeighbors", 1000);
+        ReflectionTestUtils.setField(graph, "maxPathDegree", 1000);
+
+        StreamsBuilder builder = new StreamsBuilder();
+        KStream<String, FinancialEvent> events = builder.stream("transfers.events",
+                Consumed.with(Serdes.String(), new FinancialEventSerde()));
+        graph.alerts(builder, events).to("alerts", Produced.with(Serdes.String(), Serdes.String()));
+
+        Properties props = new Properties();
+        props.put(StreamsConfig.APPLICATION_ID_CONFIG, "transfer-graph-test");
+        props.put(StreamsConfig.BOOTSTRAP_SERVERS_CONFIG, "dummy:9092");
+        props.put(StreamsConfig.STATE_DIR_CONFIG, stateDir.toString());
+        driver = new TopologyTestDriver(builder.build(), props);
+        transfers = driver.createInputTopic("transfers.events", new StringSerializer(), new StringSerializer());
+        alerts = driver.createOutputTopic("alerts", new StringDeserializer(), new StringDeserializer());
+    }
+
+    @AfterEach
+    void tearDown() {
+        driver.close();
+    }
+
+    private void transfer(String from, String to, long ts) {
+        String id = "t-" + (++seq);
+        transfers.pipeInput(id, "{\"id\":\"" + id + "\",\"type\":\"transfer\",\"amount\":100,\"from\":\"" + from
+                + "\",\"to\":\"" + to + "\"}", ts);
+    }
+
+    private List<JsonNode> readAlerts() throws Exception {
+        List<JsonNode> out = new ArrayList<>();
+        for (String value : alerts.readValuesToList()) {
+            out.add(mapper.readTree(value));
+        }
+        return out;
+    }
+
+    @Test
+    void fanOutFiresOnceWhenTheMinimumIsReached() throws Exception {
+        transfer("a", "x1", T0);
+        transfer("a", "x2", T0 + 1);
+        transfer("a", "x1", T0 + 2);
+        assertThat(readAlerts()).isEmpty();
+
+        transfer("a", "x3", T0 + 3);
+        transfer("a", "x4", T0 + 4);
+        List<JsonNode> out = readAlerts();
+        assertThat(out).hasSize(1);
+        assertThat(out.get(0).get("alert").asText()).isEqualTo("transfer_fan_out");
+        assertThat(out.get(0).get("accountId").asText()).isEqualTo("a");
+        assertThat(out.get(0).get("count").asInt()).isEqualTo(3);
+    }
+
+    @Test
+    void fanInFiresForTheReceivingAccount() throws Exception {
+        transfer("s1", "mule", T0);
+        transfer("s2", "mule", T0 + 1);
+        transfer("s3", "mule", T0 + 2);
+        List<JsonNode> out = readAlerts();
+        assertThat(out).hasSize(1);
+        assertThat(out.get(0).get("alert").asText()).isEqualTo("transfer_fan_in");
+        assertThat(out.get(0).get("accountId").asText()).isEqualTo("mule");
+    }
+
+    @Test
+    void edgesOutsideTheWindowDoNotCount() throws Exception {
+        transfer("a", "x1", T0);
+        transfer("a", "x2", T0);
+        transfer("a", "x3", T0 + WINDOW_MS + 1);
+        assertThat(readAlerts()).isEmpty();
+    }
+
+    @Test
+    void cycleIsReportedOnceByItsSmallestAccount() throws Exception {
+        transfer("b", "c", T0);
+        transfer("c", "a", T0 + 1);
+        transfer("a", "b", T0 + 2);
+        List<JsonNode> out = readAlerts();
+        assertThat(out).hasSize(1);
+        JsonNode cycle = out.get(0);
+        assertThat(cycle.get("alert").asText()).isEqualTo("transfer_cycle");
+        assertThat(cycle.get("accountId").asText()).isEqualTo("a");
+        assertThat(cycle.get("accounts").toString()).isEqualTo("[\"a\",\"b\",\"c\"]");
+    }
+
+    @Test
+    void openPathsAndSelfTransfersAreNotCycles() throws Exception {
+        transfer("a", "b", T0);
+        transfer("b", "c", T0 + 1);
+        transfer("c", "d", T0 + 2);
+        transfer("d", "d", T0 + 3);
+        assertThat(readAlerts()).isEmpty();
+    }
+
+    @Test
+    void cycleClosedAfterTheWindowIsIgnored() throws Exception {
+        transfer("a", "b", T0);
+        transfer("b", "c", T0 + 1);
+        transfer("c", "a", T0 + WINDOW_MS + 10);
+        assertThat(readAlerts()).isEmpty();
+    }
+
+    @Test
+    void cycleThroughAHubIsStillSeenFromItsOtherAccounts() throws Exception {
+        ReflectionTestUtils.setField(graph, "maxPathDegree", 2);
+        // h recibe de tres cuentas: por encima del tope no genera caminos a través de ella
+        transfer("s1", "h", T0);
+        transfer("s2", "h", T0 + 1);
+        transfer("a", "h", T0 + 2);
+        transfer("h", "x", T0 + 3);
+        transfer("x", "a", T0 + 4);
+        List<JsonNode> out = readAlerts();
+        assertThat(out).extracting(n -> n.get("alert").asText()).containsExactly("transfer_fan_in", "transfer_cycle");
+        assertThat(out.get(1).get("accountId").asText()).isEqualTo("a");
+    }
+}
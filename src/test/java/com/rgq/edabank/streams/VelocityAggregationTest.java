@@ -0,0 +1,120 @@
+package com.rgq.edabank.streams;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.apache.kafka.common.serialization.Serdes;
+import org.apache.kafka.common.serialization.StringDeserializer;
+import org.apache.kafka.common.serialization.StringSerializer;
+import org.apache.kafka.streams.KeyValue;
+import org.apache.kafka.streams.StreamsBuilder;
+import org.apache.kafka.streams.StreamsConfig;
+import org.apache.kafka.streams.TestInputTopic;
+import org.apache.kafka.streams.TestOutputTopic;
+import org.apache.kafka.streams.TopologyTestDriver;
+import org.apache.kafka.streams.kstream.Consumed;
+import org.apache.kafka.streams.kstream.Produced;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Properties;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class VelocityAggregationTest {
+
+    private static final long WINDOW_MS = 300_000;
+    private static final long ADVANCE_MS = 60_000;
+    private static final long T0 = 1_700_000_000_000L;
+
+    private final ObjectMapper mapper = new ObjectMapper();
+
+    @TempDir
+    Path stateDir;
+
+    private TopologyTestDriver driver;
+    private TestInputTopic<String, String> events;
+    private TestOutputTopic<String, String> alerts;
+    private int seq;
+
+    @BeforeEach
+    void setUp() {
+        VelocityAggregation velocity = new VelocityAggregation();
+        ReflectionTestUtils.setField(velocity, "windowMs", WINDOW_MS);
+        ReflectionTestUtils.setField(velocity, "advanceMs", ADVANCE_MS);
+        ReflectionTestUtils.setField(velocity, "graceMs", 30_000L);
+        ReflectionTestUtils.setField(velocity, "retentionMs", 3_600_000L);
+        ReflectionTestUtils.setField(velocity, "maxCount", 3L);
+        ReflectionTestUtils.setField(velocity, "maxAmount", 1_000_000.0);
+
+        StreamsBuilder builder = new StreamsBuilder();
+        FinancialEventSerde serde = new FinancialEventSerde();
+        velocity.alerts(builder, builder.stream("events-by-account", Consumed.with(Serdes.String(), serde)), serde)
+                .to("alerts", Produced.with(Serdes.String(), Serdes.String()));
+
+        Properties props = new Properties();
+        props.put(StreamsConfig.APPLICATION_ID_CONFIG, "velocity-test");
+        props.put(StreamsConfig.BOOTSTRAP_SERVERS_CONFIG, "dummy:9092");
+        props.put(StreamsConfig.STATE_DIR_CONFIG, stateDir.toString());
+        driver = new TopologyTestDriver(builder.build(), props);
+        events = driver.createInputTopic("events-by-account", new StringSerializer(), new StringSerializer());
+        alerts = driver.createOutputTopic("alerts", new StringDeserializer(), new StringDeserializer());
+    }
+
+    @AfterEach
+    void tearDown() {
+        driver.close();
+    }
+
+    private void payment(String account, long ts) {
+        String id = "p-" + (++seq);
+        events.pipeInput(account, "{\"id\":\"" + id + "\",\"type\":\"payment\",\"amount\":10,\"currency\":\"EUR\",\"accountId\":\""
+                + account + "\"}", ts);
+    }
+
+    @Test
+    void burstAlertsOnceAlthoughItFallsInEveryHoppingWindow() throws Exception {
+        // La ráfaga cae en WINDOW_MS / ADVANCE_MS = 5 ventanas, que cruzan el límite con el mismo evento
+        for (int i = 0; i < 5; i++) {
+            payment("acc-1", T0 + i);
+        }
+        List<KeyValue<String, String>> out = alerts.readKeyValuesToList();
+        assertThat(out).hasSize(1);
+        assertThat(out.get(0).key).isEqualTo("acc-1");
+        JsonNode alert = mapper.readTree(out.get(0).value);
+        assertThat(alert.get("alert").asText()).isEqualTo("velocity_exceeded");
+        assertThat(alert.get("count").asLong()).isEqualTo(3);
+        assertThat(alert.get("windowEnd").asLong() - alert.get("windowStart").asLong()).isEqualTo(WINDOW_MS);
+    }
+
+    @Test
+    void laterBurstOutsideTheAlertedWindowAlertsAgain() {
+        for (int i = 0; i < 3; i++) {
+            payment("acc-1", T0 + i);
+        }
+        for (int i = 0; i < 3; i++) {
+            payment("acc-1", T0 + 2 * WINDOW_MS + i);
+        }
+        assertThat(alerts.readValuesToList()).hasSize(2);
+    }
+
+    @Test
+    void accountsAreDeduplicatedIndependently() {
+        for (int i = 0; i < 3; i++) {
+            payment("acc-1", T0 + i);
+            payment("acc-2", T0 + i);
+        }
+        assertThat(alerts.readKeysToList()).containsExactlyInAnyOrder("acc-1", "acc-2");
+    }
+
+    @Test
+    void belowTheLimitNothingIsEmitted() {
+        payment("acc-1", T0);
+        payment("acc-1", T0 + ADVANCE_MS);
+        assertThat(alerts.readValuesToList()).isEmpty();
+    }
+}